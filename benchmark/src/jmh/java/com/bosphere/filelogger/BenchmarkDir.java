@@ -0,0 +1,40 @@
+package com.bosphere.filelogger;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A temporary directory for the log files of a benchmark.
+ */
+class BenchmarkDir {
+
+    final File dir;
+
+    BenchmarkDir() {
+        try {
+            dir = File.createTempFile("filelogger-benchmark", "");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        if (!dir.delete() || !dir.mkdir()) {
+            throw new IllegalStateException("failed to create benchmark dir: " + dir);
+        }
+    }
+
+    /**
+     * Deletes the directory along with the log files written so far.
+     */
+    void delete() {
+        delete(dir);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,104 @@
+package com.bosphere.filelogger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time spent by the caller of {@link FileLogger} per log, at each level. Logs at {@code V} are
+ * below the minimum level, and with {@code enabled} set to {@code false} logging is switched off
+ * altogether, which covers both ways logs are skipped. Logs that are output go to file, with a
+ * queue policy that never blocks so that the writer thread does not set the pace.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CallerBenchmark {
+
+    @Param({"V", "D", "I", "W", "E"})
+    public String level;
+
+    @Param({"true", "false"})
+    public boolean enabled;
+
+    @Param({"false", "true"})
+    public boolean deferFormatting;
+
+    private BenchmarkDir mDir;
+    private int mLevel;
+    private int mCount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mDir = new BenchmarkDir();
+        FileLogger.init(new LogConfig.Builder()
+                .minLevel(FLConst.Level.D)
+                .logToFile(true)
+                .dir(mDir.dir)
+                .deferFormatting(deferFormatting)
+                .overflowPolicy(FLConst.OverflowPolicy.DROP_NEWEST)
+                // error logs would flush right away otherwise, which is not the caller's cost
+                .flushLevel(Integer.MAX_VALUE)
+                .build());
+        FileLogger.setEnabled(enabled);
+        mLevel = "VDIWE".indexOf(level);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FileLogger.setEnabled(false);
+        mDir.delete();
+    }
+
+    @Benchmark
+    public void format() {
+        int count = mCount++;
+        switch (mLevel) {
+            case FLConst.Level.V:
+                FileLogger.v("Benchmark", "log %d of %s", count, level);
+                break;
+            case FLConst.Level.D:
+                FileLogger.d("Benchmark", "log %d of %s", count, level);
+                break;
+            case FLConst.Level.I:
+                FileLogger.i("Benchmark", "log %d of %s", count, level);
+                break;
+            case FLConst.Level.W:
+                FileLogger.w("Benchmark", "log %d of %s", count, level);
+                break;
+            case FLConst.Level.E:
+                FileLogger.e("Benchmark", "log %d of %s", count, level);
+                break;
+        }
+    }
+
+    @Benchmark
+    public void plain() {
+        switch (mLevel) {
+            case FLConst.Level.V:
+                FileLogger.v("Benchmark", "a log without arguments");
+                break;
+            case FLConst.Level.D:
+                FileLogger.d("Benchmark", "a log without arguments");
+                break;
+            case FLConst.Level.I:
+                FileLogger.i("Benchmark", "a log without arguments");
+                break;
+            case FLConst.Level.W:
+                FileLogger.w("Benchmark", "a log without arguments");
+                break;
+            case FLConst.Level.E:
+                FileLogger.e("Benchmark", "a log without arguments");
+                break;
+        }
+    }
+}
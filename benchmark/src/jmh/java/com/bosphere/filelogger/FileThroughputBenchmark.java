@@ -0,0 +1,139 @@
+package com.bosphere.filelogger;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs written to disk end to end: each operation logs a batch and waits until the file logger
+ * thread has flushed all of it, which is known by a marker logged last. Besides batches per
+ * second, the {@code bytes} counter reports how many bytes per second reach the log files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FileThroughputBenchmark {
+
+    private static final int BATCH = 10000;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Param({"text", "deferred", "binary"})
+    public String format;
+
+    private BenchmarkDir mDir;
+    private long mBatch;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Written {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mDir = new BenchmarkDir();
+        LogConfig.Builder builder = new LogConfig.Builder()
+                .logToFile(true)
+                .dir(mDir.dir)
+                .retentionPolicy(FLConst.RetentionPolicy.NONE);
+        if ("deferred".equals(format)) {
+            builder.deferFormatting(true);
+        } else if ("binary".equals(format)) {
+            builder.formatter(new BinaryFormatter());
+        }
+        FileLogger.init(builder.build());
+        FileLogger.setEnabled(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FileLogger.setEnabled(false);
+        mDir.delete();
+    }
+
+    @Benchmark
+    public void writeBatch(Written written) throws IOException, InterruptedException {
+        long before = totalSize();
+        for (int i = 0; i < BATCH; i++) {
+            FileLogger.d("Benchmark", "log %d of batch %d, with some details", i, mBatch);
+        }
+        // error logs are flushed right away, so the batch is on disk once the marker is
+        String marker = "end of batch " + mBatch++;
+        FileLogger.e("Benchmark", "%s", marker);
+        awaitMarker(marker.getBytes(UTF_8));
+        written.bytes += totalSize() - before;
+    }
+
+    private long totalSize() {
+        long size = 0;
+        File[] files = mDir.dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                size += f.length();
+            }
+        }
+        return size;
+    }
+
+    private void awaitMarker(byte[] marker) throws IOException, InterruptedException {
+        byte[] tail = new byte[marker.length + 64];
+        for (;;) {
+            File latest = null;
+            File[] files = mDir.dir.listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    if (latest == null || f.lastModified() >= latest.lastModified()) {
+                        latest = f;
+                    }
+                }
+            }
+
+            if (latest != null && latest.length() > 0) {
+                RandomAccessFile file = new RandomAccessFile(latest, "r");
+                try {
+                    int length = (int) Math.min(tail.length, file.length());
+                    file.seek(file.length() - length);
+                    file.readFully(tail, 0, length);
+                    if (contains(tail, length, marker)) {
+                        return;
+                    }
+                } finally {
+                    file.close();
+                }
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static boolean contains(byte[] bytes, int length, byte[] part) {
+        outer:
+        for (int i = 0; i + part.length <= length; i++) {
+            for (int j = 0; j < part.length; j++) {
+                if (bytes[i + j] != part[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,43 @@
+package com.bosphere.filelogger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lines per second formatted by {@link LogConfig.DefaultFormatter}, either into a new string as
+ * done by callers, or appended to a reused builder as done on the file logger thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FormatterBenchmark {
+
+    private final LogConfig.DefaultFormatter mFormatter = new LogConfig.DefaultFormatter();
+    private final StringBuilder mLine = new StringBuilder(256);
+    private long mTime = System.currentTimeMillis();
+
+    @Benchmark
+    public String formatLine() {
+        return mFormatter.formatLine(mTime++, 1234, 5678, "D", "Benchmark",
+                "a log of a typical length, with some details");
+    }
+
+    @Benchmark
+    public StringBuilder formatLineInto() {
+        mLine.setLength(0);
+        mFormatter.formatLine(mLine, mTime++, 1234, 5678, "D", "Benchmark",
+                "a log of a typical length, with some details");
+        return mLine;
+    }
+
+    @Benchmark
+    public String formatFileName() {
+        return mFormatter.formatFileName(mTime++);
+    }
+}
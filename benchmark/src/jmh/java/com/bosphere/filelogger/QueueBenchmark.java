@@ -0,0 +1,66 @@
+package com.bosphere.filelogger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contention on the file logger queue: several threads enqueue while a single consumer drains, as
+ * the file logger thread does. An enqueue that finds the queue full, or a drain that finds it
+ * empty, returns right away rather than waiting, so scores count attempts.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueueBenchmark {
+
+    @Param({"shared", "perThread"})
+    public String queue;
+
+    @Param({"1024"})
+    public int capacity;
+
+    private LogQueue mQueue;
+    private LogConfig mConfig;
+
+    @Setup
+    public void setUp() {
+        mQueue = "shared".equals(queue) ? new LogRingBuffer(capacity) :
+                new ThreadLocalLogQueue(capacity);
+        mConfig = new LogConfig.Builder().build();
+    }
+
+    @Benchmark
+    @Group("queue")
+    @GroupThreads(3)
+    public boolean enqueue() {
+        LogEvent event = mQueue.claim();
+        if (event == null) {
+            return false;
+        }
+        event.set(mConfig, System.currentTimeMillis(), FLConst.Level.D, "line");
+        mQueue.publish(event);
+        return true;
+    }
+
+    @Benchmark
+    @Group("queue")
+    @GroupThreads(1)
+    public boolean drain() {
+        LogEvent event = mQueue.poll();
+        if (event == null) {
+            return false;
+        }
+        mQueue.release(event);
+        return true;
+    }
+}
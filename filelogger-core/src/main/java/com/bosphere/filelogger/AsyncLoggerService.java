@@ -0,0 +1,96 @@
+package com.bosphere.filelogger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outputs logs to the {@link Loggable} of their config on a background thread, see {@link
+ * LogConfig.BaseBuilder#asyncLogger(boolean)}. Callers only copy the raw log fields into a slot of
+ * a ring buffer; formatting and the output itself happen on the logger thread, which drains
+ * everything queued at once each time it wakes up. Logs are discarded rather than waited for when
+ * the buffer is full.
+ */
+class AsyncLoggerService {
+
+    static AsyncLoggerService instance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    static class InstanceHolder {
+        static final AsyncLoggerService INSTANCE = new AsyncLoggerService();
+    }
+
+    private final AtomicLong mDroppedCount = new AtomicLong();
+    private volatile LogRingBuffer mQueue;
+    private volatile boolean mIsRunning;
+
+    void log(LogConfig config, int level, String tag, String fmt, Object[] args) {
+        ensureThread(config);
+        LogEvent event = mQueue.claim();
+        if (event == null) {
+            mDroppedCount.incrementAndGet();
+            return;
+        }
+
+        event.setRaw(config, 0, level, 0, tag, fmt, args);
+        mQueue.publish(event);
+    }
+
+    long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    private void ensureThread(LogConfig config) {
+        if (!mIsRunning) {
+            synchronized (this) {
+                if (!mIsRunning) {
+                    if (mQueue == null) {
+                        mQueue = new LogRingBuffer(config.b.queueCapacity);
+                    }
+                    mIsRunning = true;
+                    new LoggerThread().start();
+                }
+            }
+        }
+    }
+
+    private class LoggerThread extends Thread {
+
+        LoggerThread() {
+            super(FLConst.TAG + "-Async");
+        }
+
+        @Override
+        public void run() {
+            LogRingBuffer queue = mQueue;
+            try {
+                for (;;) {
+                    LogEvent event = queue.take();
+                    do {
+                        try {
+                            output(event);
+                        } finally {
+                            queue.release(event);
+                        }
+                    } while ((event = queue.poll()) != null);
+                }
+            } catch (InterruptedException e) {
+                // logging it would only queue another log for this thread
+                Platform.get().report(FLConst.Level.E, "async logger thread is interrupted", e);
+                Thread.currentThread().interrupt();
+            } finally {
+                mIsRunning = false;
+            }
+        }
+
+        private void output(LogEvent event) {
+            Loggable logger = event.config.b.logger;
+            if (logger == null) {
+                return;
+            }
+
+            // the caller has moved on, keep the thread alive
+            String log = FLUtil.formatQuietly(event.fmt, event.args);
+            FileLogger.output(logger, event.level, event.tag, log);
+        }
+    }
+}
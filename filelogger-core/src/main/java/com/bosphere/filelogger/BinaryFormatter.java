@@ -0,0 +1,20 @@
+package com.bosphere.filelogger;
+
+/**
+ * Makes log files hold compact binary records instead of text lines: timestamps are stored as
+ * deltas, tags and thread ids are written once per file and referenced by index afterwards. Files
+ * are named like {@link LogConfig.DefaultFormatter} but with the {@link #EXTENSION} extension, and
+ * can be turned back into the usual text layout with {@link BinaryLogDecoder}.
+ * <p>
+ * Records are encoded from the raw log fields on the file logger thread, so formatting is always
+ * deferred with this formatter. It cannot be combined with {@link
+ * LogConfig.BaseBuilder#memoryMapped(boolean)}.
+ */
+public class BinaryFormatter extends LogConfig.DefaultFormatter {
+
+    public static final String EXTENSION = ".flb";
+
+    public BinaryFormatter() {
+        super(EXTENSION);
+    }
+}
@@ -0,0 +1,362 @@
+package com.bosphere.filelogger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IllegalFormatException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Turns log files written with {@link BinaryFormatter} back into text lines. Plain Java, so it can
+ * also be run off device against pulled files, gzipped or not:
+ * <pre>
+ * java -cp filelogger.jar com.bosphere.filelogger.BinaryLogDecoder 09_23_12_00.flb ...
+ * </pre>
+ * A record cut short at the end of a file, as left behind when the app is killed mid-write, is
+ * ignored. The file logger cuts it off before appending to the file again, see {@link
+ * #truncateIncomplete(File)}.
+ */
+public class BinaryLogDecoder {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ThreadAwareFormatter mFormatter;
+
+    /**
+     * Decodes into the layout of {@link LogConfig.DefaultFormatter}.
+     */
+    public BinaryLogDecoder() {
+        this(new LogConfig.DefaultFormatter());
+    }
+
+    public BinaryLogDecoder(ThreadAwareFormatter formatter) {
+        mFormatter = formatter;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: BinaryLogDecoder FILE...");
+            System.exit(2);
+        }
+
+        BinaryLogDecoder decoder = new BinaryLogDecoder();
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, UTF_8));
+        try {
+            for (String path : args) {
+                InputStream in = new FileInputStream(path);
+                try {
+                    if (LogFileCompressor.isCompressed(path)) {
+                        in = new GZIPInputStream(in);
+                    }
+                    decoder.decode(in, out);
+                } finally {
+                    in.close();
+                }
+            }
+        } finally {
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes one line per log read from {@code in}, which is not closed.
+     */
+    public void decode(InputStream in, Writer out) throws IOException {
+        RecordReader records = new RecordReader(in);
+        StringBuilder line = new StringBuilder(256);
+        while (records.next()) {
+            line.setLength(0);
+            mFormatter.formatLine(line, records.time, records.processId, records.threadId,
+                    FLConst.LevelName.get(records.level), records.tag, records.log);
+            out.append(line).append('\n');
+        }
+    }
+
+    /**
+     * Cuts off a record left incomplete at the end of {@code file}, along with the definitions
+     * after the last log, so that records appended afterwards are not read as part of it. Files
+     * that cannot be read as binary logs are left as they are.
+     */
+    static void truncateIncomplete(File file) throws IOException {
+        CountingInputStream in = new CountingInputStream(new FileInputStream(file));
+        long end = 0;
+        try {
+            RecordReader records = new RecordReader(in);
+            while (records.next()) {
+                end = in.count;
+            }
+            if (!records.truncated) {
+                return;
+            }
+        } catch (IOException | RuntimeException e) {
+            // corrupted before the end, appending does not make it any worse
+            return;
+        } finally {
+            in.close();
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.getChannel().truncate(end);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Reads the logs of a binary log file one by one, see {@link #next()}.
+     */
+    static class RecordReader {
+
+        private final InputStream mIn;
+        private final ArrayList<String> mTags = new ArrayList<>();
+        private final ArrayList<Integer> mThreads = new ArrayList<>();
+        private final ArrayList<String> mTemplates = new ArrayList<>();
+        private boolean mStarted;
+        private boolean mEnded;
+
+        // fields of the log last read
+        long time;
+        int processId;
+        int threadId;
+        int level;
+        String tag;
+        String log;
+        // whether the file ends within a record
+        boolean truncated;
+
+        RecordReader(InputStream in) {
+            mIn = in instanceof BufferedInputStream ? in : new BufferedInputStream(in);
+        }
+
+        /**
+         * Moves on to the next log and sets the fields to it.
+         *
+         * @return {@code false} at the end of the file
+         */
+        boolean next() throws IOException {
+            if (mEnded) {
+                return false;
+            }
+
+            try {
+                if (!mStarted) {
+                    mStarted = true;
+                    if (!readMagic()) {
+                        mEnded = true;
+                        return false;
+                    }
+                }
+                if (readRecord()) {
+                    return true;
+                }
+            } catch (EOFException e) {
+                // truncated last record
+                truncated = true;
+            } catch (IndexOutOfBoundsException e) {
+                mEnded = true;
+                throw new IOException("corrupted binary log file", e);
+            }
+            mEnded = true;
+            return false;
+        }
+
+        private boolean readMagic() throws IOException {
+            for (int i = 0; i < BinaryLogEncoder.MAGIC.length; i++) {
+                int b = mIn.read();
+                if (b == -1) {
+                    // nothing written yet, or cut short while writing the magic
+                    truncated = i > 0;
+                    return false;
+                }
+                if (b != BinaryLogEncoder.MAGIC[i]) {
+                    throw new IOException("not a binary log file");
+                }
+            }
+            return true;
+        }
+
+        private boolean readRecord() throws IOException {
+            InputStream in = mIn;
+            int type;
+            while ((type = in.read()) != -1) {
+                switch (type) {
+                    case BinaryLogEncoder.RECORD_START:
+                        time = readVarint(in);
+                        processId = (int) readVarint(in);
+                        mTags.clear();
+                        mThreads.clear();
+                        mTemplates.clear();
+                        break;
+                    case BinaryLogEncoder.RECORD_TAG:
+                        mTags.add(readString(in));
+                        break;
+                    case BinaryLogEncoder.RECORD_THREAD:
+                        mThreads.add((int) readVarint(in));
+                        break;
+                    case BinaryLogEncoder.RECORD_TEMPLATE:
+                        mTemplates.add(readString(in));
+                        break;
+                    default:
+                        boolean formatted = type >= BinaryLogEncoder.RECORD_FORMAT;
+                        level = type - (formatted ? BinaryLogEncoder.RECORD_FORMAT :
+                                BinaryLogEncoder.RECORD_LOG);
+                        if (FLConst.LevelName.get(level) == null) {
+                            throw new IOException("unknown record type: " + type);
+                        }
+
+                        time += readZigzag(in);
+                        tag = mTags.get((int) readVarint(in));
+                        threadId = mThreads.get((int) readVarint(in));
+                        if (formatted) {
+                            String fmt = mTemplates.get((int) readVarint(in));
+                            Object[] args = new Object[(int) readVarint(in)];
+                            for (int i = 0; i < args.length; i++) {
+                                args[i] = readArg(in);
+                            }
+                            log = format(fmt, args);
+                        } else {
+                            log = readString(in);
+                        }
+                        return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Counts the bytes handed out, which are the bytes read from the file by a {@link
+     * RecordReader} since it reads directly from a {@link BufferedInputStream}.
+     */
+    private static class CountingInputStream extends BufferedInputStream {
+
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public synchronized long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    private static String format(String fmt, Object[] args) {
+        try {
+            return FLUtil.format(fmt, args);
+        } catch (IllegalFormatException e) {
+            // would have failed the same way when formatted while logging
+            return fmt + " " + Arrays.toString(args);
+        }
+    }
+
+    private static Object readArg(InputStream in) throws IOException {
+        int type = in.read();
+        switch (type) {
+            case BinaryLogEncoder.ARG_NULL:
+                return null;
+            case BinaryLogEncoder.ARG_FALSE:
+                return false;
+            case BinaryLogEncoder.ARG_TRUE:
+                return true;
+            case BinaryLogEncoder.ARG_BYTE:
+                return (byte) readZigzag(in);
+            case BinaryLogEncoder.ARG_SHORT:
+                return (short) readZigzag(in);
+            case BinaryLogEncoder.ARG_INT:
+                return (int) readZigzag(in);
+            case BinaryLogEncoder.ARG_LONG:
+                return readZigzag(in);
+            case BinaryLogEncoder.ARG_FLOAT:
+                return Float.intBitsToFloat((int) readFixed(in, 4));
+            case BinaryLogEncoder.ARG_DOUBLE:
+                return Double.longBitsToDouble(readFixed(in, 8));
+            case BinaryLogEncoder.ARG_CHAR:
+                return (char) readVarint(in);
+            case BinaryLogEncoder.ARG_STRING:
+                return readString(in);
+            case -1:
+                throw new EOFException();
+            default:
+                throw new IOException("unknown argument type: " + type);
+        }
+    }
+
+    private static String readString(InputStream in) throws IOException {
+        int length = (int) readVarint(in);
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            int read = in.read(bytes, offset, length - offset);
+            if (read == -1) {
+                throw new EOFException();
+            }
+            offset += read;
+        }
+        return new String(bytes, UTF_8);
+    }
+
+    private static long readFixed(InputStream in, int bytes) throws IOException {
+        long bits = 0;
+        for (int i = 0; i < bytes; i++) {
+            int b = in.read();
+            if (b == -1) {
+                throw new EOFException();
+            }
+            bits |= (long) b << 8 * i;
+        }
+        return bits;
+    }
+
+    private static long readZigzag(InputStream in) throws IOException {
+        long value = readVarint(in);
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b == -1) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+}
@@ -0,0 +1,236 @@
+package com.bosphere.filelogger;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Writes logs as binary records for {@link BinaryFormatter}. A file starts with {@link #MAGIC}
+ * followed by a sequence of records, each introduced by a type byte:
+ * <pre>
+ * START       time (varint, absolute ms), process id (varint)
+ * TAG         tag (string)
+ * THREAD      thread id (varint)
+ * TEMPLATE    format string (string)
+ * LOG+lv      time delta (zigzag varint), tag index (varint), thread index (varint),
+ *             message (string)
+ * FORMAT+lv   time delta (zigzag varint), tag index (varint), thread index (varint),
+ *             template index (varint), argument count (varint), arguments
+ * </pre>
+ * Strings are a varint byte length followed by UTF-8 bytes. Arguments are a type byte followed by
+ * the value, integers as zigzag varints and floating point numbers as their raw bits in little
+ * endian. TAG, THREAD and TEMPLATE records define the next index of their dictionary; dictionaries
+ * are cleared and the time base reset by every START record, one of which is written whenever a
+ * file is opened, so a file appended to across restarts stays readable once a record cut short
+ * at its end is cut off, see {@link BinaryLogDecoder#truncateIncomplete(java.io.File)}. Only used
+ * by the file logger thread.
+ * <p>
+ * Logs with arguments of basic types only are stored as FORMAT records and never formatted
+ * while logging, the reader does that with {@link FLUtil#format(String, Object...)}. Anything
+ * else is formatted here and stored as a LOG record.
+ */
+class BinaryLogEncoder {
+
+    static final byte[] MAGIC = {'F', 'L', 'B', '1'};
+
+    static final int RECORD_START = 0x01;
+    static final int RECORD_TAG = 0x02;
+    static final int RECORD_THREAD = 0x03;
+    static final int RECORD_TEMPLATE = 0x04;
+    // level is added to the type
+    static final int RECORD_LOG = 0x10;
+    static final int RECORD_FORMAT = 0x20;
+
+    static final int ARG_NULL = 0;
+    static final int ARG_FALSE = 1;
+    static final int ARG_TRUE = 2;
+    static final int ARG_BYTE = 3;
+    static final int ARG_SHORT = 4;
+    static final int ARG_INT = 5;
+    static final int ARG_LONG = 6;
+    static final int ARG_FLOAT = 7;
+    static final int ARG_DOUBLE = 8;
+    static final int ARG_CHAR = 9;
+    static final int ARG_STRING = 10;
+
+    // format strings built at runtime would otherwise grow the dictionary without bound
+    static final int MAX_TEMPLATES = 4096;
+
+    private final HashMap<String, Integer> mTags = new HashMap<>();
+    private final HashMap<String, Integer> mTemplates = new HashMap<>();
+    private int[] mThreads = new int[16];
+    private int mThreadCount;
+    // index of the thread that logged last, most logs come in runs from the same thread
+    private int mLastThread;
+    private long mLastTime;
+
+    /**
+     * Starts a run of records in a newly opened file.
+     */
+    void start(LogWriter writer, long timeMs, int processId) throws IOException {
+        mTags.clear();
+        mTemplates.clear();
+        mThreadCount = 0;
+        mLastThread = 0;
+        mLastTime = timeMs;
+
+        if (writer.length() == 0) {
+            for (byte b : MAGIC) {
+                writer.write(b);
+            }
+        }
+        writer.write(RECORD_START);
+        writeVarint(writer, timeMs);
+        writeVarint(writer, processId);
+    }
+
+    void write(LogWriter writer, long timeMs, int level, int threadId, String tag, String fmt,
+            Object[] args) throws IOException {
+        if (args == null || args.length == 0 || fmt == null) {
+            writeLog(writer, timeMs, level, threadId, tag, fmt);
+            return;
+        }
+
+        Integer template = mTemplates.get(fmt);
+        if (template == null) {
+            if (mTemplates.size() >= MAX_TEMPLATES || !isBasic(args)) {
+                writeLog(writer, timeMs, level, threadId, tag, FLUtil.formatQuietly(fmt, args));
+                return;
+            }
+            template = mTemplates.size();
+            mTemplates.put(fmt, template);
+            writer.write(RECORD_TEMPLATE);
+            writeString(writer, fmt);
+        } else if (!isBasic(args)) {
+            writeLog(writer, timeMs, level, threadId, tag, FLUtil.formatQuietly(fmt, args));
+            return;
+        }
+
+        writeHeader(writer, RECORD_FORMAT + level, timeMs, threadId, tag);
+        writeVarint(writer, template);
+        writeVarint(writer, args.length);
+        for (Object arg : args) {
+            writeArg(writer, arg);
+        }
+    }
+
+    private void writeLog(LogWriter writer, long timeMs, int level, int threadId, String tag,
+            CharSequence log) throws IOException {
+        writeHeader(writer, RECORD_LOG + level, timeMs, threadId, tag);
+        writeString(writer, log != null ? log : "");
+    }
+
+    // defines the tag and thread if needed, then writes the fields shared by all log records
+    private void writeHeader(LogWriter writer, int type, long timeMs, int threadId, String tag)
+            throws IOException {
+        if (tag == null) {
+            tag = "";
+        }
+        Integer tagIndex = mTags.get(tag);
+        if (tagIndex == null) {
+            tagIndex = mTags.size();
+            mTags.put(tag, tagIndex);
+            writer.write(RECORD_TAG);
+            writeString(writer, tag);
+        }
+
+        int threadIndex = indexOfThread(threadId);
+        if (threadIndex < 0) {
+            if (mThreadCount == mThreads.length) {
+                mThreads = Arrays.copyOf(mThreads, mThreadCount * 2);
+            }
+            threadIndex = mThreadCount++;
+            mThreads[threadIndex] = threadId;
+            writer.write(RECORD_THREAD);
+            writeVarint(writer, threadId);
+        }
+        mLastThread = threadIndex;
+
+        writer.write(type);
+        long delta = timeMs - mLastTime;
+        mLastTime = timeMs;
+        writeZigzag(writer, delta);
+        writeVarint(writer, tagIndex);
+        writeVarint(writer, threadIndex);
+    }
+
+    private static boolean isBasic(Object[] args) {
+        for (Object arg : args) {
+            if (arg != null && !(arg instanceof String) && !(arg instanceof Integer) &&
+                    !(arg instanceof Long) && !(arg instanceof Boolean) &&
+                    !(arg instanceof Double) && !(arg instanceof Float) &&
+                    !(arg instanceof Character) && !(arg instanceof Short) &&
+                    !(arg instanceof Byte)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeArg(LogWriter writer, Object arg) throws IOException {
+        if (arg == null) {
+            writer.write(ARG_NULL);
+        } else if (arg instanceof String) {
+            writer.write(ARG_STRING);
+            writeString(writer, (String) arg);
+        } else if (arg instanceof Integer) {
+            writer.write(ARG_INT);
+            writeZigzag(writer, (Integer) arg);
+        } else if (arg instanceof Long) {
+            writer.write(ARG_LONG);
+            writeZigzag(writer, (Long) arg);
+        } else if (arg instanceof Boolean) {
+            writer.write((Boolean) arg ? ARG_TRUE : ARG_FALSE);
+        } else if (arg instanceof Double) {
+            writer.write(ARG_DOUBLE);
+            writeFixed(writer, Double.doubleToRawLongBits((Double) arg), 8);
+        } else if (arg instanceof Float) {
+            writer.write(ARG_FLOAT);
+            writeFixed(writer, Float.floatToRawIntBits((Float) arg), 4);
+        } else if (arg instanceof Character) {
+            writer.write(ARG_CHAR);
+            writeVarint(writer, (Character) arg);
+        } else if (arg instanceof Short) {
+            writer.write(ARG_SHORT);
+            writeZigzag(writer, (Short) arg);
+        } else {
+            writer.write(ARG_BYTE);
+            writeZigzag(writer, (Byte) arg);
+        }
+    }
+
+    private int indexOfThread(int threadId) {
+        if (mLastThread < mThreadCount && mThreads[mLastThread] == threadId) {
+            return mLastThread;
+        }
+        for (int i = 0; i < mThreadCount; i++) {
+            if (mThreads[i] == threadId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void writeString(LogWriter writer, CharSequence text) throws IOException {
+        writeVarint(writer, LogWriter.encodedLength(text));
+        writer.append(text);
+    }
+
+    private static void writeFixed(LogWriter writer, long bits, int bytes) throws IOException {
+        for (int i = 0; i < bytes; i++) {
+            writer.write((int) (bits >>> 8 * i) & 0xff);
+        }
+    }
+
+    private static void writeZigzag(LogWriter writer, long value) throws IOException {
+        writeVarint(writer, value << 1 ^ value >> 63);
+    }
+
+    private static void writeVarint(LogWriter writer, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            writer.write((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        writer.write((int) value);
+    }
+}
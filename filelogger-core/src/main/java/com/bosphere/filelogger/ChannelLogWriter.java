@@ -0,0 +1,71 @@
+package com.bosphere.filelogger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Buffers encoded text in a direct {@link ByteBuffer} and drains it with {@link
+ * FileChannel#write(ByteBuffer)}, so each drain is a single write call without intermediate copies.
+ */
+class ChannelLogWriter extends LogWriter {
+
+    private final FileOutputStream mStream;
+    private final FileChannel mChannel;
+    private long mWritten;
+
+    ChannelLogWriter(File file, int bufferSize) throws IOException {
+        mStream = new FileOutputStream(file, true);
+        mChannel = mStream.getChannel();
+        mWritten = mChannel.size();
+        mBuffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    @Override
+    void makeRoom() throws IOException {
+        drain();
+    }
+
+    @Override
+    long length() {
+        return mWritten + mBuffer.position();
+    }
+
+    @Override
+    int bufferedBytes() {
+        return mBuffer.position();
+    }
+
+    @Override
+    void flush() throws IOException {
+        drain();
+    }
+
+    @Override
+    void sync() throws IOException {
+        mChannel.force(false);
+    }
+
+    @Override
+    void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            mStream.close();
+        }
+    }
+
+    private void drain() throws IOException {
+        ByteBuffer buf = mBuffer;
+        buf.flip();
+        try {
+            while (buf.hasRemaining()) {
+                mWritten += mChannel.write(buf);
+            }
+        } finally {
+            buf.clear();
+        }
+    }
+}
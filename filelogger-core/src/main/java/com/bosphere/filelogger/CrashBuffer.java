@@ -0,0 +1,167 @@
+package com.bosphere.filelogger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps the last logs of all levels in memory, see {@link
+ * LogConfig.BaseBuilder#crashBufferSize(int)}. Only the raw log fields are recorded, messages are
+ * formatted when the buffer is dumped to file by the default uncaught exception handler, which is
+ * installed once and hands the exception on to the handler it replaced.
+ */
+class CrashBuffer {
+
+    // crash reports are written into the log directory, named after when they happened
+    static final String FILE_PREFIX = "crash_";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static boolean sHandlerInstalled;
+
+    private final AtomicReferenceArray<Entry> mEntries;
+    private final AtomicLong mNext = new AtomicLong();
+    private final int mMask;
+
+    CrashBuffer(int size) {
+        int capacity = FLUtil.ceilPowerOfTwo(size);
+        mEntries = new AtomicReferenceArray<>(capacity);
+        mMask = capacity - 1;
+    }
+
+    void record(int level, String tag, String fmt, Object[] args, MessageSupplier supplier,
+            Throwable tr) {
+        Entry entry = new Entry(System.currentTimeMillis(), level, Platform.get().myTid(), tag, fmt,
+                args, supplier, tr);
+        mEntries.set((int) (mNext.getAndIncrement() & mMask), entry);
+    }
+
+    /**
+     * Writes the recorded logs followed by the stack trace of {@code throwable} to a new file in
+     * the log directory of {@code config}, all in one write.
+     */
+    void dump(LogConfig config, Thread thread, Throwable throwable) throws IOException {
+        FileFormatter formatter = config.b.formatter;
+        if (formatter == null) {
+            formatter = new LogConfig.DefaultFormatter();
+        }
+
+        long next = mNext.get();
+        int capacity = mEntries.length();
+        int pid = Platform.get().myPid();
+        StringBuilder sb = new StringBuilder(capacity * 128);
+        for (long i = Math.max(0, next - capacity); i < next; i++) {
+            Entry entry = mEntries.get((int) (i & mMask));
+            if (entry != null) {
+                entry.append(sb, config, formatter, pid);
+                sb.append('\n');
+            }
+        }
+        sb.append("--- uncaught exception in thread [").append(thread.getName()).append("] ---\n");
+        sb.append(stackTrace(throwable));
+
+        File dir = new File(config.b.dirPath);
+        if (!FLUtil.ensureDir(dir)) {
+            return;
+        }
+        String name = FILE_PREFIX +
+                new SimpleDateFormat("MM_dd_HH_mm_ss", Locale.ENGLISH).format(new Date()) + ".txt";
+        FileOutputStream out = new FileOutputStream(new File(dir, name));
+        try {
+            out.write(sb.toString().getBytes(UTF_8));
+            out.getFD().sync();
+        } finally {
+            FLUtil.closeQuietly(out);
+        }
+    }
+
+    static synchronized void installHandler() {
+        if (sHandlerInstalled) {
+            return;
+        }
+        sHandlerInstalled = true;
+
+        final Thread.UncaughtExceptionHandler previous =
+                Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread thread, Throwable throwable) {
+                try {
+                    // the config in effect at the time of the crash decides where to dump
+                    LogConfig config = FileLogger.getConfig();
+                    CrashBuffer buffer = config == null ? null : config.b.crashBuffer;
+                    if (buffer != null && !FLUtil.isEmpty(config.b.dirPath)) {
+                        buffer.dump(config, thread, throwable);
+                    }
+                } catch (Throwable e) {
+                    Platform.get().report(FLConst.Level.E, "failed to dump crash buffer", e);
+                } finally {
+                    if (previous != null) {
+                        previous.uncaughtException(thread, throwable);
+                    }
+                }
+            }
+        });
+    }
+
+    private static String stackTrace(Throwable tr) {
+        StringWriter sw = new StringWriter();
+        PrintWriter pw = new PrintWriter(sw);
+        tr.printStackTrace(pw);
+        pw.flush();
+        return sw.toString();
+    }
+
+    private static class Entry {
+        final long timeMs;
+        final int level;
+        final int tid;
+        final String tag;
+        final String fmt;
+        final Object[] args;
+        final MessageSupplier supplier;
+        final Throwable tr;
+
+        Entry(long timeMs, int level, int tid, String tag, String fmt, Object[] args,
+                MessageSupplier supplier, Throwable tr) {
+            this.timeMs = timeMs;
+            this.level = level;
+            this.tid = tid;
+            this.tag = tag;
+            this.fmt = fmt;
+            this.args = args;
+            this.supplier = supplier;
+            this.tr = tr;
+        }
+
+        void append(StringBuilder sb, LogConfig config, FileFormatter formatter, int pid) {
+            String log;
+            try {
+                log = supplier != null ? supplier.get() : fmt == null ? "" :
+                        FLUtil.format(fmt, args);
+            } catch (RuntimeException e) {
+                // a broken message must not cost the rest of the dump
+                log = fmt + " <" + e + ">";
+            }
+            if (tr != null) {
+                log = log + "\n" + stackTrace(tr);
+            }
+
+            String tag = FLUtil.isEmpty(this.tag) ? config.b.defaultTag : this.tag;
+            String level = FLConst.LevelName.get(this.level);
+            if (formatter instanceof ThreadAwareFormatter) {
+                ((ThreadAwareFormatter) formatter).formatLine(sb, timeMs, pid, tid, level, tag,
+                        log);
+            } else {
+                sb.append(formatter.formatLine(timeMs, level, tag, log));
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.bosphere.filelogger;
+
+/**
+ * Created by bo on 23/9/17.
+ */
+
+public interface FLConst {
+
+    String TAG = "FileLogger";
+
+    interface Level {
+        int V = 0;
+        int D = 1;
+        int I = 2;
+        int W = 3;
+        int E = 4;
+    }
+
+    LevelNames LevelName = new LevelNames();
+
+    /**
+     * Maps each {@link Level} to its name, e.g. {@code LevelName.get(Level.D)} is {@code "D"}.
+     */
+    final class LevelNames {
+        private final String[] mNames = {"V", "D", "I", "W", "E"};
+
+        LevelNames() {
+        }
+
+        /**
+         * @return {@code null} for unknown levels
+         */
+        public String get(int level) {
+            return level >= 0 && level < mNames.length ? mNames[level] : null;
+        }
+    }
+
+    interface RetentionPolicy {
+        int NONE = 0;
+        int FILE_COUNT = 1;
+        int TOTAL_SIZE = 2;
+    }
+
+    /**
+     * Defines what happens when the file logger queue is full.
+     */
+    interface OverflowPolicy {
+        // wait until the file logger thread catches up, discard the log if it has stopped
+        int BLOCK = 0;
+        // discard the log being added
+        int DROP_NEWEST = 1;
+        // discard the earliest queued log to make room
+        int DROP_OLDEST = 2;
+        // discard logs below the overflow level, wait for the rest
+        int DROP_BELOW_LEVEL = 3;
+    }
+
+    long DEFAULT_MAX_TOTAL_SIZE = 32 * 1024 * 1024; // 32mb
+    int DEFAULT_MAX_FILE_COUNT = 24 * 7; // ~7 days of restless logging
+    int DEFAULT_QUEUE_CAPACITY = 2048;
+    int DEFAULT_WRITE_BUFFER_SIZE = 64 * 1024; // 64kb
+    int DEFAULT_MAPPED_REGION_SIZE = 1024 * 1024; // 1mb
+    long DEFAULT_IDLE_FLUSH_TIMEOUT = 2 * 1000; // 2 seconds
+    long DEFAULT_IDLE_CLOSE_TIMEOUT = 60 * 1000; // 1 minute
+    int DEFAULT_SPILL_CAPACITY = 1024;
+}
@@ -0,0 +1,101 @@
+package com.bosphere.filelogger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by yangbo on 22/9/17.
+ */
+
+class FLUtil {
+
+    static String format(String fmt, Object... args) {
+        if (args == null || args.length == 0) {
+            return fmt;
+        }
+
+        return String.format(Locale.ENGLISH, fmt, args);
+    }
+
+    /**
+     * Formats on a logger thread, where a bad format string or argument can no longer be reported
+     * to the caller and must not stop the thread.
+     */
+    static String formatQuietly(String fmt, Object... args) {
+        try {
+            return format(fmt, args);
+        } catch (RuntimeException e) {
+            try {
+                return fmt + " " + Arrays.toString(args);
+            } catch (RuntimeException ignored) {
+                // an argument whose toString() throws
+                return fmt;
+            }
+        }
+    }
+
+    /**
+     * @return milliseconds from a monotonic clock, only meaningful relative to each other
+     */
+    static long uptimeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    static int ceilPowerOfTwo(int value) {
+        if (value <= 1) {
+            return 1;
+        }
+        if (value > 1 << 30) {
+            throw new IllegalArgumentException("value too large: " + value);
+        }
+        return Integer.highestOneBit(value - 1) << 1;
+    }
+
+    static boolean isEmpty(CharSequence str) {
+        return str == null || str.length() == 0;
+    }
+
+    static boolean ensureDir(File dir) {
+        if (dir.exists()) {
+            if (dir.isDirectory()) {
+                return true;
+            }
+
+            if (!dir.delete()) {
+                Platform.get().report(FLConst.Level.W,
+                        "failed to delete file that occupies log dir path: [" +
+                                dir.getAbsolutePath() + "]", null);
+                return false;
+            }
+        }
+
+        if (!dir.mkdir()) {
+            Platform.get().report(FLConst.Level.W,
+                    "failed to create log dir: [" + dir.getAbsolutePath() + "]", null);
+            return false;
+        }
+
+        return true;
+    }
+
+    static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    static void ensureFile(File file) {
+        if (file.exists() && !file.isFile() && !file.delete()) {
+            throw new IllegalStateException(
+                    "failed to delete directory that occupies log file path: [" +
+                            file.getAbsolutePath() + "]");
+        }
+    }
+}
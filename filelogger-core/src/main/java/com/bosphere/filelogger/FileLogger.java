@@ -0,0 +1,339 @@
+package com.bosphere.filelogger;
+
+import java.io.File;
+
+import static com.bosphere.filelogger.FLConst.Level.D;
+import static com.bosphere.filelogger.FLConst.Level.E;
+import static com.bosphere.filelogger.FLConst.Level.I;
+import static com.bosphere.filelogger.FLConst.Level.V;
+import static com.bosphere.filelogger.FLConst.Level.W;
+
+/**
+ * Logs according to the {@link LogConfig} passed to {@link #init(LogConfig)}, on any Java runtime.
+ * On Android use {@code FL}, which can also be initialized from a {@code Context}.
+ */
+public class FileLogger {
+
+    private volatile static boolean sEnabled;
+    private volatile static LogConfig sConfig;
+
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    public static void init(LogConfig config) {
+        LogConfig previous = sConfig;
+        if (previous != null && previous.b.throttle != null) {
+            // report what has been held back while the previous config still applies
+            previous.b.throttle.close();
+        }
+        sConfig = config;
+        if (config.b.crashBuffer != null) {
+            CrashBuffer.installHandler();
+        }
+        StatsReporter.update(config);
+    }
+
+    protected FileLogger() {
+    }
+
+    static LogConfig getConfig() {
+        return sConfig;
+    }
+
+    /**
+     * @return how many logs have been discarded so far because a file logger queue, or the queue
+     * of {@link LogConfig.BaseBuilder#asyncLogger(boolean)}, was full
+     */
+    public static long getDroppedCount() {
+        return FileLoggerService.getTotalDroppedCount() +
+                AsyncLoggerService.instance().getDroppedCount();
+    }
+
+    /**
+     * @return a snapshot of the counters of the file logging pipeline, e.g. to watch for logging
+     * falling behind; see also {@link LogConfig.BaseBuilder#statsListener(LogStatsListener, long)}
+     */
+    public static LogStats getStats() {
+        LogStats stats = FileLoggerService.getTotalStats();
+        stats.droppedCount += AsyncLoggerService.instance().getDroppedCount();
+        return stats;
+    }
+
+    /**
+     * @return a query over the log files written so far, see {@link LogQuery}
+     */
+    public static LogQuery query() {
+        return new LogQuery(getDir());
+    }
+
+    /**
+     * @return an exporter of the log files written so far, see {@link LogExporter}
+     */
+    public static LogExporter exporter() {
+        return new LogExporter(getDir());
+    }
+
+    /**
+     * Checks whether logs at {@code level} would be output, so that callers can skip building
+     * expensive messages otherwise. Messages passed as format string and arguments, or as a
+     * {@link MessageSupplier}, are already only formatted when this returns {@code true}.
+     *
+     * @param level For possible values refer to {@link com.bosphere.filelogger.FLConst.Level}
+     * @return
+     */
+    public static boolean isLoggable(int level) {
+        if (!sEnabled) {
+            return false;
+        }
+
+        ensureStatus();
+        return level >= sConfig.b.minLevel;
+    }
+
+    public static void v(String fmt, Object... args) {
+        v(null, fmt, args);
+    }
+
+    public static void v(String tag, String fmt, Object... args) {
+        log(V, tag, fmt, args);
+    }
+
+    public static void v(MessageSupplier supplier) {
+        log(V, null, supplier);
+    }
+
+    public static void v(String tag, MessageSupplier supplier) {
+        log(V, tag, supplier);
+    }
+
+    public static void d(String fmt, Object... args) {
+        d(null, fmt, args);
+    }
+
+    public static void d(String tag, String fmt, Object... args) {
+        log(D, tag, fmt, args);
+    }
+
+    public static void d(MessageSupplier supplier) {
+        log(D, null, supplier);
+    }
+
+    public static void d(String tag, MessageSupplier supplier) {
+        log(D, tag, supplier);
+    }
+
+    public static void i(String fmt, Object... args) {
+        log(I, null, fmt, args);
+    }
+
+    public static void i(String tag, String fmt, Object... args) {
+        log(I, tag, fmt, args);
+    }
+
+    public static void i(MessageSupplier supplier) {
+        log(I, null, supplier);
+    }
+
+    public static void i(String tag, MessageSupplier supplier) {
+        log(I, tag, supplier);
+    }
+
+    public static void w(String fmt, Object... args) {
+        w(null, fmt, args);
+    }
+
+    public static void w(String tag, String fmt, Object... args) {
+        log(W, tag, fmt, args);
+    }
+
+    public static void w(MessageSupplier supplier) {
+        log(W, null, supplier);
+    }
+
+    public static void w(String tag, MessageSupplier supplier) {
+        log(W, tag, supplier);
+    }
+
+    public static void e(String fmt, Object... args) {
+        e((String) null, fmt, args);
+    }
+
+    public static void e(String tag, String fmt, Object... args) {
+        log(E, tag, fmt, args);
+    }
+
+    public static void e(MessageSupplier supplier) {
+        log(E, null, supplier);
+    }
+
+    public static void e(String tag, MessageSupplier supplier) {
+        log(E, tag, supplier);
+    }
+
+    public static void e(Throwable tr) {
+        e(null, tr);
+    }
+
+    public static void e(String tag, Throwable tr) {
+        e(tag, tr, null);
+    }
+
+    public static void e(Throwable tr, String fmt, Object... args) {
+        e(null, tr, fmt, args);
+    }
+
+    public static void e(String tag, Throwable tr, String fmt, Object... args) {
+        if (!record(E, tag, fmt, args, null, tr)) {
+            return;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        if (!FLUtil.isEmpty(fmt)) {
+            sb.append(FLUtil.format(fmt, args));
+            sb.append("\n");
+        }
+        if (tr != null) {
+            sb.append(Platform.get().getStackTraceString(tr));
+        }
+        String log = sb.toString();
+        LogThrottle throttle = sConfig.b.throttle;
+        // repeats are collapsed first so that they do not use up the rate limit
+        if (throttle == null || throttle.collapse(E, tag, log, null) && throttle.acquire(E, tag)) {
+            print(E, tag, log, null);
+        }
+    }
+
+    /**
+     * Reports logs held back by {@link LogThrottle}, bypassing it.
+     */
+    static void printSummary(int level, String tag, String fmt, int count) {
+        print(level, tag, fmt, new Object[]{count});
+    }
+
+    private static void log(int level, String tag, String fmt, Object[] args) {
+        if (record(level, tag, fmt, args, null, null)) {
+            LogThrottle throttle = sConfig.b.throttle;
+            // repeats are collapsed first so that they do not use up the rate limit
+            if (throttle == null ||
+                    throttle.collapse(level, tag, fmt, args) && throttle.acquire(level, tag)) {
+                print(level, tag, fmt, args);
+            }
+        }
+    }
+
+    private static void log(int level, String tag, MessageSupplier supplier) {
+        if (record(level, tag, null, null, supplier, null)) {
+            String log = supplier.get();
+            LogThrottle throttle = sConfig.b.throttle;
+            // repeats are collapsed first so that they do not use up the rate limit
+            if (throttle == null ||
+                    throttle.collapse(level, tag, log, null) && throttle.acquire(level, tag)) {
+                print(level, tag, log, null);
+            }
+        }
+    }
+
+    /**
+     * Keeps the log for crash reports if enabled, whatever its level, see {@link
+     * LogConfig.BaseBuilder#crashBufferSize(int)}.
+     *
+     * @return whether the log is to be output, like {@link #isLoggable(int)}
+     */
+    private static boolean record(int level, String tag, String fmt, Object[] args,
+            MessageSupplier supplier, Throwable tr) {
+        if (!sEnabled) {
+            return false;
+        }
+
+        ensureStatus();
+        LogConfig config = sConfig;
+        CrashBuffer crashBuffer = config.b.crashBuffer;
+        if (crashBuffer != null) {
+            crashBuffer.record(level, tag, fmt, args, supplier, tr);
+        }
+        return level >= config.b.minLevel;
+    }
+
+    private static void print(int level, String tag, String fmt, Object[] args) {
+        LogConfig config = sConfig;
+        if (FLUtil.isEmpty(tag)) {
+            tag = config.b.defaultTag;
+        }
+
+        String log = null;
+        Loggable logger = config.b.logger;
+        if (logger != null) {
+            if (config.b.asyncLogger) {
+                AsyncLoggerService.instance().log(config, level, tag, fmt, args);
+            } else {
+                log = FLUtil.format(fmt, args);
+                output(logger, level, tag, log);
+            }
+        }
+
+        FileLoggerService service = FileLoggerService.instance();
+        LogConfig.Sink[] sinks = config.b.sinks;
+        for (int i = 0; i < sinks.length; i++) {
+            if (sinks[i].filter.accept(level, tag)) {
+                service = sinks[i].service;
+                config = sinks[i].config;
+                break;
+            }
+        }
+
+        if (config.b.logToFile && !FLUtil.isEmpty(config.b.dirPath)) {
+            long timeMs = System.currentTimeMillis();
+            if (config.b.deferFormatting) {
+                // reuse the message if it has been formatted for logcat already, except for binary
+                // files which store the format string and arguments apart
+                boolean raw = log == null || config.b.formatter instanceof BinaryFormatter;
+                service.logFile(config, timeMs, level, Platform.get().myTid(), tag, raw ? fmt : log,
+                        raw ? args : null);
+            } else {
+                if (log == null) {
+                    log = FLUtil.format(fmt, args);
+                }
+                String line = config.b.formatter.formatLine(timeMs, FLConst.LevelName.get(level),
+                        tag, log);
+                service.logFile(config, timeMs, level, line);
+            }
+        }
+    }
+
+    static void output(Loggable logger, int level, String tag, String log) {
+        switch (level) {
+            case V:
+                logger.v(tag, log);
+                break;
+            case D:
+                logger.d(tag, log);
+                break;
+            case I:
+                logger.i(tag, log);
+                break;
+            case W:
+                logger.w(tag, log);
+                break;
+            case E:
+                logger.e(tag, log);
+                break;
+        }
+    }
+
+    private static File getDir() {
+        ensureStatus();
+        String dirPath = sConfig.b.dirPath;
+        if (FLUtil.isEmpty(dirPath)) {
+            throw new IllegalStateException("FileLogger is not logging to file");
+        }
+        return new File(dirPath);
+    }
+
+    private static void ensureStatus() {
+        if (sConfig == null) {
+            throw new IllegalStateException(
+                    "FileLogger is not initialized. Forgot to call FL.init()?");
+        }
+    }
+}
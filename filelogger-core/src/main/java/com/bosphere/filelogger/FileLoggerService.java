@@ -0,0 +1,852 @@
+package com.bosphere.filelogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by bo on 23/9/17.
+ */
+
+class FileLoggerService {
+
+    private static final HashMap<String, FileLoggerService> sSinks = new HashMap<>();
+
+    static FileLoggerService instance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    static class InstanceHolder {
+        static final FileLoggerService INSTANCE = new FileLoggerService(FLConst.TAG);
+    }
+
+    /**
+     * @return the service writing the files of the named sink, see {@link
+     * LogConfig.BaseBuilder#sink(String, LogFilter, LogConfig)}
+     */
+    static FileLoggerService instance(String sink) {
+        synchronized (sSinks) {
+            FileLoggerService service = sSinks.get(sink);
+            if (service == null) {
+                service = new FileLoggerService(FLConst.TAG + "-" + sink);
+                sSinks.put(sink, service);
+            }
+            return service;
+        }
+    }
+
+    /**
+     * @return counters of all services, except for logs dropped by {@link AsyncLoggerService}
+     */
+    static LogStats getTotalStats() {
+        LogStats stats = new LogStats();
+        stats.timeMs = System.currentTimeMillis();
+        instance().addStats(stats);
+        synchronized (sSinks) {
+            for (FileLoggerService service : sSinks.values()) {
+                service.addStats(stats);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Has the file logger thread writing to {@code dir}, if any, flush and list its files. Logging
+     * threads are not held up, the caller waits for logs queued before to be written.
+     *
+     * @return {@code null} if no file logger thread writes to {@code dir} or none answered within
+     * {@code timeoutMs}
+     */
+    static LogSnapshot snapshot(File dir, long timeoutMs) throws InterruptedException {
+        ArrayList<FileLoggerService> services = new ArrayList<>();
+        services.add(instance());
+        synchronized (sSinks) {
+            services.addAll(sSinks.values());
+        }
+
+        long deadline = FLUtil.uptimeMs() + timeoutMs;
+        ArrayList<LogSnapshot> requests = new ArrayList<>();
+        for (FileLoggerService service : services) {
+            LogSnapshot snapshot = service.requestSnapshot(dir, deadline);
+            if (snapshot != null) {
+                requests.add(snapshot);
+            }
+        }
+
+        LogSnapshot result = null;
+        for (LogSnapshot snapshot : requests) {
+            if (snapshot.await(Math.max(deadline - FLUtil.uptimeMs(), 0)) && result == null) {
+                result = snapshot;
+            }
+        }
+        return result;
+    }
+
+    static long getTotalDroppedCount() {
+        long count = instance().getDroppedCount();
+        synchronized (sSinks) {
+            for (FileLoggerService service : sSinks.values()) {
+                count += service.getDroppedCount();
+            }
+        }
+        return count;
+    }
+
+    // how long writing to file stays degraded before it is tried or measured again
+    private static final long DEGRADED_RETRY_INTERVAL = 5 * 1000;
+    // how many compressed periods late logs are kept out of, older ones are rather clock changes
+    private static final int MAX_COMPRESSED_PERIODS = 8;
+
+    private final String mName;
+    private final AtomicLong mDroppedCount = new AtomicLong();
+    private final LogFileCompressor mCompressor = new LogFileCompressor();
+    private volatile LogQueue mQueue;
+    private volatile boolean mIsRunning;
+    // logs below this level are discarded while writing to file is slow or failing
+    private volatile int mDegradedLevel = Integer.MIN_VALUE;
+
+    // only updated by the file logger thread, see LogStats
+    private final AtomicLong mWrittenCount = new AtomicLong();
+    private final AtomicLong mWrittenBytes = new AtomicLong();
+    private final LatencyHistogram mWriteLatency = new LatencyHistogram();
+    private final LatencyHistogram mFlushLatency = new LatencyHistogram();
+    private final LatencyHistogram mHouseKeepingDuration = new LatencyHistogram();
+    private volatile int mSpilledCount;
+
+    private FileLoggerService(String name) {
+        mName = name;
+    }
+
+    void logFile(LogConfig config, long timeMs, int level, String line) {
+        ensureThread(config);
+        if (level < mDegradedLevel) {
+            mDroppedCount.incrementAndGet();
+            return;
+        }
+
+        LogEvent event = claim(level, config.b.overflowPolicy, config.b.overflowLevel);
+        if (event == null) {
+            // logging about it would only feed the full queue again
+            mDroppedCount.incrementAndGet();
+            return;
+        }
+
+        event.set(config, timeMs, level, line);
+        mQueue.publish(event);
+    }
+
+    /**
+     * Queues the raw fields of a log; the line is formatted on the file logger thread.
+     */
+    void logFile(LogConfig config, long timeMs, int level, int threadId, String tag, String fmt,
+            Object[] args) {
+        ensureThread(config);
+        if (level < mDegradedLevel) {
+            mDroppedCount.incrementAndGet();
+            return;
+        }
+
+        LogEvent event = claim(level, config.b.overflowPolicy, config.b.overflowLevel);
+        if (event == null) {
+            mDroppedCount.incrementAndGet();
+            return;
+        }
+
+        event.setRaw(config, timeMs, level, threadId, tag, fmt, args);
+        mQueue.publish(event);
+    }
+
+    long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    private void addStats(LogStats stats) {
+        LogQueue queue = mQueue;
+        if (queue != null) {
+            stats.queueSize += queue.size();
+            stats.queueCapacity += queue.capacity();
+        }
+        stats.droppedCount += mDroppedCount.get();
+        stats.spilledCount += mSpilledCount;
+        stats.degraded |= mDegradedLevel != Integer.MIN_VALUE;
+        stats.writtenCount += mWrittenCount.get();
+        stats.writtenBytes += mWrittenBytes.get();
+        mWriteLatency.addTo(stats.writeLatency);
+        mFlushLatency.addTo(stats.flushLatency);
+        mHouseKeepingDuration.addTo(stats.houseKeepingDuration);
+    }
+
+    private LogSnapshot requestSnapshot(File dir, long deadline) throws InterruptedException {
+        LogQueue queue = mQueue;
+        if (!mIsRunning || queue == null) {
+            return null;
+        }
+
+        LogEvent event;
+        while ((event = queue.claim()) == null) {
+            if (FLUtil.uptimeMs() >= deadline) {
+                return null;
+            }
+            Thread.sleep(1);
+        }
+
+        LogSnapshot snapshot = new LogSnapshot(dir);
+        event.setSnapshot(System.currentTimeMillis(), snapshot);
+        queue.publish(event);
+        return snapshot;
+    }
+
+    private LogEvent claim(int level, int overflowPolicy, int overflowLevel) {
+        LogQueue queue = mQueue;
+        LogEvent event = queue.claim();
+        if (event != null) {
+            return event;
+        }
+
+        if (Thread.currentThread() instanceof LogFileThread) {
+            // logger threads must never wait on a queue, they may be the ones to drain it
+            return null;
+        }
+
+        switch (overflowPolicy) {
+            case FLConst.OverflowPolicy.DROP_NEWEST:
+                return null;
+            case FLConst.OverflowPolicy.DROP_OLDEST:
+                return queue.claimEvicting(mDroppedCount);
+            case FLConst.OverflowPolicy.DROP_BELOW_LEVEL:
+                return level >= overflowLevel ? queue.claimWait() : null;
+            default:
+                return queue.claimWait();
+        }
+    }
+
+    private void ensureThread(LogConfig config) {
+        if (!mIsRunning) {
+            synchronized (this) {
+                if (!mIsRunning) {
+                    if (mQueue == null) {
+                        mQueue = config.b.threadQueueCapacity > 0 ?
+                                new ThreadLocalLogQueue(config.b.threadQueueCapacity) :
+                                new LogRingBuffer(config.b.queueCapacity);
+                    }
+                    mIsRunning = true;
+                    FileLogger.d(FLConst.TAG, "start file logger service thread: [%s]", mName);
+                    LogFileThread thread = new LogFileThread();
+                    // producers blocked on a full queue give up if the thread dies
+                    mQueue.setConsumer(thread);
+                    thread.start();
+                }
+            }
+        }
+    }
+
+    private class LogFileThread extends Thread {
+
+        private final int mProcessId = Platform.get().myPid();
+        private final StringBuilder mLine = new StringBuilder(256);
+        private LogWriter mWriter;
+        private String mDirPath;
+        private String mBaseName;
+        private String mFileName;
+        // log time the current file was opened for, to resolve its name by
+        private long mFileTime;
+        private int mSequence;
+        private LogFileIndex mIndex;
+        private BinaryLogEncoder mEncoder;
+        // file closed last and its length, known to end with a whole record
+        private File mClosedFile;
+        private long mClosedLength;
+        private LogOffsetIndex.Writer mOffsetIndex;
+        private LogConfig mConfig;
+        // files submitted to the compressor mapped to the first file of their period, and the
+        // periods compressed last
+        private final HashMap<File, File> mCompressing = new HashMap<>();
+        private final ArrayDeque<File> mCompressed = new ArrayDeque<>();
+
+        // written but not yet flushed
+        private boolean mDirty;
+        private long mLastWriteTime;
+        private long mFlushDeadline = Long.MAX_VALUE;
+        // flush requested by log level, how many logs have been written since
+        private boolean mFlushRequested;
+        private int mFlushRequestBatch;
+
+        // writing failed, logs are kept in memory until it is retried
+        private boolean mFailing;
+        private long mRetryTime;
+        private final ArrayDeque<LogEvent> mSpilled = new ArrayDeque<>();
+
+        LogFileThread() {
+            super(mName);
+        }
+
+        @Override
+        public void run() {
+            super.run();
+            Thread.currentThread().setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+                @Override
+                public void uncaughtException(Thread thread, Throwable throwable) {
+                    throwable.printStackTrace();
+                    // keep what has been written so far
+                    closeWriter();
+                    mIsRunning = false;
+                }
+            });
+
+            LogQueue queue = mQueue;
+            try {
+                for (;;) {
+                    LogEvent event = queue.poll();
+                    if (event == null) {
+                        // queue is drained, commit flushes requested by the batch in one go
+                        if (mFlushRequested) {
+                            commit();
+                        }
+                        event = await(queue);
+                    }
+
+                    if (event != null) {
+                        consume(queue, event);
+                        if (mFlushRequested && ++mFlushRequestBatch >= queue.capacity() ||
+                                mFlushDeadline != Long.MAX_VALUE && FLUtil.uptimeMs() >= mFlushDeadline) {
+                            commit();
+                        }
+                    } else {
+                        onIdle();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Platform.get().report(FLConst.Level.E, "file logger service thread is interrupted",
+                        e);
+            }
+
+            FileLogger.d("file logger service thread stopped");
+            mIsRunning = false;
+        }
+
+        private void consume(LogQueue queue, LogEvent event) {
+            try {
+                if (event.snapshot != null) {
+                    snapshot(event.snapshot);
+                } else {
+                    mConfig = event.config;
+                    logLine(event);
+                }
+            } finally {
+                queue.release(event);
+            }
+        }
+
+        private void snapshot(LogSnapshot snapshot) {
+            if (mIndex == null ||
+                    !mIndex.getDir().getAbsoluteFile().equals(snapshot.dir.getAbsoluteFile())) {
+                // cancelled once released
+                return;
+            }
+
+            commit();
+            applyCompressed();
+            if (mWriter != null) {
+                mIndex.update(mFileName, mWriter.length());
+            }
+            for (String name : mIndex.names()) {
+                snapshot.sizes.put(name, mIndex.sizeOf(name));
+            }
+            snapshot.complete();
+        }
+
+        private void logLine(LogEvent event) {
+            if (mFailing && (FLUtil.uptimeMs() < mRetryTime || !writeSpilled())) {
+                spill(event);
+                return;
+            }
+
+            if (!writeLine(event)) {
+                spill(event);
+            }
+        }
+
+        /**
+         * @return {@code false} if the log could not be written to file
+         */
+        private boolean writeLine(LogEvent event) {
+            String fileName = event.config.b.formatter.formatFileName(event.timeMs);
+            if (FLUtil.isEmpty(fileName)) {
+                throw new IllegalStateException("invalid file name: [" + fileName + "]");
+            }
+
+            String dirPath = event.config.b.dirPath;
+            if (FLUtil.isEmpty(dirPath)) {
+                throw new IllegalStateException("invalid directory path: [" + dirPath + "]");
+            }
+
+            // binary records are encoded from the raw fields, see BinaryLogEncoder
+            boolean binary = event.config.b.formatter instanceof BinaryFormatter;
+            CharSequence line = null;
+            if (!binary) {
+                line = event.line != null ? event.line : formatLine(event);
+                if (FLUtil.isEmpty(line)) {
+                    return true;
+                }
+            }
+
+            boolean sameDir = dirPath.equals(mDirPath);
+            if (mWriter == null || !fileName.equals(mBaseName) || !sameDir) {
+                long fileTime = event.timeMs;
+                if (sameDir && isCompressed(dirPath, fileName)) {
+                    // logged before moving on to the current file but queued after, e.g. by a
+                    // racing thread; the file of its period is not to be reopened once submitted
+                    // for compression
+                    fileName = mBaseName;
+                    fileTime = mFileTime;
+                }
+                if ((mWriter == null || !fileName.equals(mBaseName) || !sameDir) &&
+                        !openWriter(dirPath, fileTime, fileName, -1)) {
+                    return false;
+                }
+            } else if (isRotatable() && mWriter.length() >= mConfig.b.maxFileSize) {
+                if (!openWriter(dirPath, event.timeMs, fileName, mSequence + 1)) {
+                    return false;
+                }
+            }
+
+            long start = System.nanoTime();
+            long length = mWriter.length();
+            if (mOffsetIndex != null) {
+                mOffsetIndex.add(length, event.timeMs, event.level);
+            }
+            try {
+                if (binary) {
+                    mEncoder.write(mWriter, event.timeMs, event.level, event.threadId, event.tag,
+                            event.fmt, event.args);
+                } else {
+                    mWriter.append(line);
+                    mWriter.append('\n');
+                }
+            } catch (IOException e) {
+                onWriteFailed(e);
+                return false;
+            }
+
+            long end = System.nanoTime();
+            mWriteLatency.record(end - start);
+            mWrittenCount.lazySet(mWrittenCount.get() + 1);
+            addWrittenBytes(mWriter.length() - length);
+
+            LogConfig.BaseBuilder<?> b = event.config.b;
+            mLastWriteTime = TimeUnit.NANOSECONDS.toMillis(end);
+            checkLatency(TimeUnit.NANOSECONDS.toMillis(start), mLastWriteTime, false);
+            mDirty = true;
+            if (b.flushLatency > 0 && mFlushDeadline == Long.MAX_VALUE) {
+                mFlushDeadline = mLastWriteTime + b.flushLatency;
+            }
+            if (event.level >= b.flushLevel) {
+                mFlushRequested = true;
+            }
+            if (b.flushBytes > 0 && mWriter.bufferedBytes() >= b.flushBytes) {
+                commit();
+            }
+            return true;
+        }
+
+        private void spill(LogEvent event) {
+            int capacity = event.config.b.spillCapacity;
+            if (capacity <= 0) {
+                mDroppedCount.incrementAndGet();
+                return;
+            }
+
+            if (mSpilled.size() >= capacity) {
+                mSpilled.pollFirst();
+                mDroppedCount.incrementAndGet();
+            }
+            mSpilled.addLast(event.copy());
+            mSpilledCount = mSpilled.size();
+        }
+
+        /**
+         * Retries writing to file, starting with the logs kept in memory.
+         *
+         * @return {@code false} if writing still fails
+         */
+        private boolean writeSpilled() {
+            mFailing = false;
+            LogEvent event;
+            while ((event = mSpilled.peekFirst()) != null) {
+                if (!writeLine(event)) {
+                    return false;
+                }
+                mSpilled.pollFirst();
+                mSpilledCount = mSpilled.size();
+            }
+            return true;
+        }
+
+        private void onWriteFailed(IOException e) {
+            Platform.get().report(FLConst.Level.E,
+                    "failed to write log file, retry in " + DEGRADED_RETRY_INTERVAL + "ms", e);
+            mFailing = true;
+            mRetryTime = FLUtil.uptimeMs() + DEGRADED_RETRY_INTERVAL;
+            degrade();
+            closeWriter();
+        }
+
+        /**
+         * Degrades when an I/O operation is slow, if a threshold is set. Recovery is only decided
+         * on flushes, as most writes merely copy into the buffer.
+         */
+        private void checkLatency(long start, long end, boolean flushed) {
+            long threshold = mConfig.b.slowWriteThreshold;
+            if (threshold > 0 && end - start >= threshold) {
+                if (mDegradedLevel == Integer.MIN_VALUE) {
+                    Platform.get().report(FLConst.Level.W,
+                            "writing log file took " + (end - start) + "ms", null);
+                }
+                mRetryTime = end + DEGRADED_RETRY_INTERVAL;
+                degrade();
+            } else if (flushed && !mFailing && mDegradedLevel != Integer.MIN_VALUE &&
+                    end >= mRetryTime) {
+                mDegradedLevel = Integer.MIN_VALUE;
+                Platform.get().report(FLConst.Level.I, "writing log file recovered", null);
+            }
+        }
+
+        private void degrade() {
+            mDegradedLevel = mConfig.b.degradedLevel;
+        }
+
+        /**
+         * Waits for the next log until the writer is due to be flushed or closed.
+         *
+         * @return {@code null} if nothing was logged in time
+         */
+        private LogEvent await(LogQueue queue) throws InterruptedException {
+            if (mWriter == null) {
+                if (mSpilled.isEmpty()) {
+                    return queue.take();
+                }
+                // retry writing the logs kept in memory even if nothing else is logged
+                return queue.poll(Math.max(mRetryTime - FLUtil.uptimeMs(), 0),
+                        TimeUnit.MILLISECONDS);
+            }
+
+            LogConfig.BaseBuilder<?> b = mConfig.b;
+            long deadline = Long.MAX_VALUE;
+            if (mDirty) {
+                deadline = Math.min(mLastWriteTime + b.idleFlushTimeout, mFlushDeadline);
+            }
+            if (b.idleCloseTimeout > 0) {
+                deadline = Math.min(deadline, mLastWriteTime + b.idleCloseTimeout);
+            }
+
+            if (deadline == Long.MAX_VALUE) {
+                // keep the writer open until more logs arrive
+                return queue.take();
+            }
+            return queue.poll(Math.max(deadline - FLUtil.uptimeMs(), 0), TimeUnit.MILLISECONDS);
+        }
+
+        private void onIdle() {
+            LogConfig.BaseBuilder<?> b = mConfig.b;
+            long now = FLUtil.uptimeMs();
+            if (mFailing && now >= mRetryTime) {
+                writeSpilled();
+            }
+
+            if (mDirty && (now >= mLastWriteTime + b.idleFlushTimeout || now >= mFlushDeadline)) {
+                commit();
+            }
+
+            if (mWriter != null && b.idleCloseTimeout > 0 &&
+                    now >= mLastWriteTime + b.idleCloseTimeout) {
+                closeWriter();
+                startHouseKeeping();
+            }
+        }
+
+        /**
+         * @param baseName name of the first file of the period
+         * @param sequence which file of the period to open, or {@code -1} to resume the latest one
+         */
+        private boolean openWriter(String dirPath, long timeMs, String baseName, int sequence) {
+            closeWriter();
+            File previous = mFileName != null ? new File(mDirPath, mFileName) : null;
+
+            File dir = new File(dirPath);
+            if (!FLUtil.ensureDir(dir)) {
+                onWriteFailed(new IOException("failed to create log dir: [" + dirPath + "]"));
+                return false;
+            }
+
+            boolean indexed = false;
+            if (mIndex == null || !dir.equals(mIndex.getDir())) {
+                mIndex = new LogFileIndex(dir);
+                indexed = true;
+            }
+
+            String fileName = baseName;
+            if (isRotatable()) {
+                SequencedFormatter formatter = (SequencedFormatter) mConfig.b.formatter;
+                if (sequence < 0) {
+                    sequence = 0;
+                    while (isTaken(formatter.formatFileName(timeMs, sequence + 1))) {
+                        sequence++;
+                    }
+                    fileName = formatter.formatFileName(timeMs, sequence);
+                    if (mIndex.contains(fileName + LogFileCompressor.SUFFIX) ||
+                            mIndex.sizeOf(fileName) >= mConfig.b.maxFileSize) {
+                        fileName = formatter.formatFileName(timeMs, ++sequence);
+                    }
+                } else {
+                    fileName = formatter.formatFileName(timeMs, sequence);
+                }
+            } else {
+                sequence = 0;
+            }
+
+            File f = new File(dir, fileName);
+            FLUtil.ensureFile(f);
+            boolean created = f.length() == 0;
+            try {
+                boolean binary = mConfig.b.formatter instanceof BinaryFormatter;
+                if (binary && !created &&
+                        !(f.equals(mClosedFile) && f.length() == mClosedLength)) {
+                    // a record cut short when the app was killed would swallow those appended
+                    BinaryLogDecoder.truncateIncomplete(f);
+                }
+                mWriter = createWriter(f);
+                long length = mWriter.length();
+                if (binary) {
+                    if (mEncoder == null) {
+                        mEncoder = new BinaryLogEncoder();
+                    }
+                    mEncoder.start(mWriter, timeMs, mProcessId);
+                    addWrittenBytes(mWriter.length() - length);
+                }
+                if (mConfig.b.indexInterval > 0) {
+                    mOffsetIndex = new LogOffsetIndex.Writer(f, mConfig.b.indexInterval, created,
+                            length, mWriter.length());
+                }
+            } catch (IOException e) {
+                onWriteFailed(e);
+                return false;
+            }
+            mIndex.update(fileName, mWriter.length());
+            mCompressor.setActive(f);
+
+            boolean switched = previous != null && !f.equals(previous);
+            File previousPeriod = mBaseName != null ? new File(mDirPath, mBaseName) : null;
+            mDirPath = dirPath;
+            mBaseName = baseName;
+            mFileName = fileName;
+            mFileTime = timeMs;
+            mSequence = sequence;
+            if (mConfig.b.compressRotatedFiles) {
+                if (indexed) {
+                    // pick up files left uncompressed by a previous run
+                    for (String name : mIndex.names()) {
+                        if (!LogFileCompressor.isCompressed(name) && !name.equals(fileName) &&
+                                !(switched && name.equals(previous.getName()))) {
+                            File file = new File(dir, name);
+                            compress(file, file);
+                        }
+                    }
+                }
+                if (switched) {
+                    compress(previous, previousPeriod);
+                }
+            }
+            if (switched) {
+                // a new file is started, the previous one counts towards retention from now on
+                startHouseKeeping();
+            }
+            return true;
+        }
+
+        private void compress(File file, File period) {
+            mCompressing.put(file, period);
+            mCompressor.submit(file);
+        }
+
+        /**
+         * @return whether a file of the period has been submitted for compression, recently
+         */
+        private boolean isCompressed(String dirPath, String baseName) {
+            if (mBaseName == null || mCompressing.isEmpty() && mCompressed.isEmpty()) {
+                return false;
+            }
+            File period = new File(dirPath, baseName);
+            return mCompressing.containsValue(period) || mCompressed.contains(period);
+        }
+
+        private boolean isRotatable() {
+            return mConfig.b.maxFileSize > 0 && mConfig.b.formatter instanceof SequencedFormatter;
+        }
+
+        private boolean isTaken(String fileName) {
+            return mIndex.contains(fileName) ||
+                    mIndex.contains(fileName + LogFileCompressor.SUFFIX);
+        }
+
+        private CharSequence formatLine(LogEvent event) {
+            FileFormatter formatter = event.config.b.formatter;
+            String level = FLConst.LevelName.get(event.level);
+            String log = FLUtil.formatQuietly(event.fmt, event.args);
+            if (formatter instanceof ThreadAwareFormatter) {
+                mLine.setLength(0);
+                ((ThreadAwareFormatter) formatter).formatLine(mLine, event.timeMs, mProcessId,
+                        event.threadId, level, event.tag, log);
+                return mLine;
+            }
+            return formatter.formatLine(event.timeMs, level, event.tag, log);
+        }
+
+        private LogWriter createWriter(File file) throws IOException {
+            // files written before memory mapping was enabled are appended to the usual way
+            if (mConfig.b.memoryMapped && MappedLogWriter.canAppend(file)) {
+                return new MappedLogWriter(file, mConfig.b.mappedRegionSize);
+            }
+
+            // one line ~100 characters = ~100-400 bytes
+            // default buf size 64k = ~160-640 lines per write
+            return new ChannelLogWriter(file, mConfig.b.writeBufferSize);
+        }
+
+        private void startHouseKeeping() {
+            if (mIndex == null) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            houseKeep();
+            mHouseKeepingDuration.record(System.nanoTime() - start);
+        }
+
+        private void houseKeep() {
+            applyCompressed();
+
+            if (mWriter != null) {
+                mIndex.update(mFileName, mWriter.length());
+            }
+
+            int retentionPolicy = mConfig.b.retentionPolicy;
+            if (retentionPolicy == FLConst.RetentionPolicy.FILE_COUNT) {
+                houseKeepByCount(mConfig.b.maxFileCount);
+            } else if (retentionPolicy == FLConst.RetentionPolicy.TOTAL_SIZE) {
+                houseKeepBySize(mConfig.b.maxSize);
+            }
+        }
+
+        private void applyCompressed() {
+            LogFileCompressor.Result result;
+            while ((result = mCompressor.pollResult()) != null) {
+                File period = mCompressing.remove(result.source);
+                if (period != null && !mCompressed.contains(period)) {
+                    mCompressed.addLast(period);
+                    if (mCompressed.size() > MAX_COMPRESSED_PERIODS) {
+                        mCompressed.pollFirst();
+                    }
+                }
+                if (!mIndex.getDir().equals(result.target.getParentFile()) ||
+                        mIndex.replace(result.source.getName(), result.target, result.size)) {
+                    continue;
+                }
+
+                if (mIndex.contains(result.target.getName())) {
+                    mIndex.update(result.target.getName(), result.size);
+                } else if (result.target.delete()) {
+                    LogOffsetIndex.of(result.target).delete();
+                    // the original was trimmed while being compressed
+                    FileLogger.d(FLConst.TAG, "deleted trimmed log file: [%s]",
+                            result.target.getName());
+                }
+            }
+        }
+
+        private void houseKeepByCount(int maxCount) {
+            if (maxCount <= 0) {
+                throw new IllegalStateException("invalid max file count: " + maxCount);
+            }
+
+            int count = mIndex.count();
+            if (count <= maxCount) {
+                return;
+            }
+
+            int deleted = mIndex.trimToCount(maxCount, mFileName);
+            FileLogger.d(FLConst.TAG, "house keeping complete: file count [%d -> %d]", count,
+                    count - deleted);
+        }
+
+        private void houseKeepBySize(long maxSize) {
+            if (maxSize <= 0) {
+                throw new IllegalStateException("invalid max total size: " + maxSize);
+            }
+
+            long totalSize = mIndex.totalSize();
+            if (totalSize <= maxSize) {
+                return;
+            }
+
+            mIndex.trimToSize(maxSize, mFileName);
+            FileLogger.d(FLConst.TAG, "house keeping complete: total size [%d -> %d]", totalSize,
+                    mIndex.totalSize());
+        }
+
+        private void commit() {
+            resetFlushState();
+            if (mWriter != null) {
+                long start = System.nanoTime();
+                try {
+                    mWriter.flush();
+                    if (mConfig.b.fsync) {
+                        mWriter.sync();
+                    }
+                } catch (IOException e) {
+                    onWriteFailed(e);
+                    return;
+                }
+                long end = System.nanoTime();
+                mFlushLatency.record(end - start);
+                checkLatency(TimeUnit.NANOSECONDS.toMillis(start),
+                        TimeUnit.NANOSECONDS.toMillis(end), true);
+            }
+        }
+
+        private void resetFlushState() {
+            mDirty = false;
+            mFlushRequested = false;
+            mFlushRequestBatch = 0;
+            mFlushDeadline = Long.MAX_VALUE;
+        }
+
+        private void addWrittenBytes(long bytes) {
+            mWrittenBytes.lazySet(mWrittenBytes.get() + bytes);
+        }
+
+        private void closeWriter() {
+            resetFlushState();
+            if (mWriter != null) {
+                mIndex.update(mFileName, mWriter.length());
+                if (mOffsetIndex != null) {
+                    mOffsetIndex.close(mWriter.length());
+                    mOffsetIndex = null;
+                }
+                mClosedFile = null;
+                try {
+                    mWriter.close();
+                    mClosedFile = new File(mDirPath, mFileName);
+                    mClosedLength = mWriter.length();
+                } catch (IOException e) {
+                    Platform.get().report(FLConst.Level.E, "failed to close log file", e);
+                }
+                mWriter = null;
+                mCompressor.setActive(null);
+            }
+        }
+    }
+}
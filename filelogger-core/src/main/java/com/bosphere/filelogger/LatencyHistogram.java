@@ -0,0 +1,39 @@
+package com.bosphere.filelogger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts durations into buckets by powers of two microseconds, see {@link LogStats.Histogram}.
+ * Only ever recorded by a single thread, so values are updated with lazy sets rather than atomic
+ * increments, while other threads can still read them.
+ */
+class LatencyHistogram {
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(LogStats.Histogram.BUCKETS);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mTotalNanos = new AtomicLong();
+    private final AtomicLong mMaxNanos = new AtomicLong();
+
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        int bucket = LogStats.Histogram.bucketOf(nanos);
+        mBuckets.lazySet(bucket, mBuckets.get(bucket) + 1);
+        mCount.lazySet(mCount.get() + 1);
+        mTotalNanos.lazySet(mTotalNanos.get() + nanos);
+        if (nanos > mMaxNanos.get()) {
+            mMaxNanos.lazySet(nanos);
+        }
+    }
+
+    void addTo(LogStats.Histogram histogram) {
+        for (int i = 0; i < LogStats.Histogram.BUCKETS; i++) {
+            histogram.buckets[i] += mBuckets.get(i);
+        }
+        histogram.count += mCount.get();
+        histogram.totalNanos += mTotalNanos.get();
+        histogram.maxNanos = Math.max(histogram.maxNanos, mMaxNanos.get());
+    }
+}
@@ -0,0 +1,836 @@
+package com.bosphere.filelogger;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+
+import static com.bosphere.filelogger.FLConst.RetentionPolicy.FILE_COUNT;
+import static com.bosphere.filelogger.FLConst.RetentionPolicy.TOTAL_SIZE;
+
+/**
+ * Settings of {@link FileLogger}, built via {@link Builder} on any Java runtime. On Android, {@code
+ * FLConfig.Builder} takes defaults from a {@code Context} as well.
+ */
+public class LogConfig {
+
+    final BaseBuilder<?> b;
+
+    LogConfig(BaseBuilder<?> b) {
+        this.b = b;
+    }
+
+    /**
+     * Builds a {@link LogConfig} without resorting to any platform API, so logging to file requires
+     * a directory passed to {@link #dir(File)}.
+     */
+    public static class Builder extends BaseBuilder<Builder> {
+
+        @Override
+        public LogConfig build() {
+            prepare();
+            return new LogConfig(this);
+        }
+    }
+
+    /**
+     * Settings common to the builders of all platforms, whose setters return the concrete builder
+     * {@code B}.
+     */
+    public abstract static class BaseBuilder<B extends BaseBuilder<B>> {
+
+        Loggable logger;
+        boolean asyncLogger;
+        FileFormatter formatter;
+        String dirPath;
+        String defaultTag;
+        int minLevel = FLConst.Level.V;
+        boolean logToFile;
+        int retentionPolicy = FILE_COUNT;
+        int maxFileCount = FLConst.DEFAULT_MAX_FILE_COUNT;
+        long maxSize = FLConst.DEFAULT_MAX_TOTAL_SIZE;
+        long maxFileSize;
+        boolean compressRotatedFiles;
+        int queueCapacity = FLConst.DEFAULT_QUEUE_CAPACITY;
+        int threadQueueCapacity;
+        int overflowPolicy = FLConst.OverflowPolicy.BLOCK;
+        int overflowLevel = FLConst.Level.W;
+        boolean deferFormatting;
+        int writeBufferSize = FLConst.DEFAULT_WRITE_BUFFER_SIZE;
+        boolean memoryMapped;
+        int mappedRegionSize = FLConst.DEFAULT_MAPPED_REGION_SIZE;
+        int indexInterval;
+        long idleFlushTimeout = FLConst.DEFAULT_IDLE_FLUSH_TIMEOUT;
+        long idleCloseTimeout = FLConst.DEFAULT_IDLE_CLOSE_TIMEOUT;
+        int flushLevel = FLConst.Level.E;
+        long flushLatency;
+        int flushBytes;
+        boolean fsync;
+        long slowWriteThreshold;
+        int degradedLevel = FLConst.Level.W;
+        int spillCapacity = FLConst.DEFAULT_SPILL_CAPACITY;
+        Sink[] sinks = new Sink[0];
+        double rateLimit;
+        int rateLimitBurst;
+        boolean collapseRepeats;
+        LogThrottle throttle;
+        int crashBufferSize;
+        CrashBuffer crashBuffer;
+        LogStatsListener statsListener;
+        long statsInterval;
+
+        /**
+         * Defines how to output to logcat. Logcat is used by default on Android, no output is made
+         * by default elsewhere. Pass {@code NULL} to disable output to logcat.
+         *
+         * @param logger
+         * @return
+         */
+        public B logger(Loggable logger) {
+            this.logger = logger;
+            return self();
+        }
+
+        /**
+         * Defines whether output to the logger happens on a background thread instead of the
+         * calling thread, which then only queues the format string and arguments, so arguments
+         * must not be mutated after being logged. Logs are discarded if the logger falls behind
+         * by more than {@link #queueCapacity(int)} logs, and logcat timestamps reflect when a log
+         * is output rather than when it was logged. Default is {@code false}.
+         *
+         * @param asyncLogger
+         * @return
+         */
+        public B asyncLogger(boolean asyncLogger) {
+            this.asyncLogger = asyncLogger;
+            return self();
+        }
+
+        /**
+         * Defines how each log looks in file, as well as how log files are named. Use {@link
+         * BinaryFormatter} to write compact binary records instead of text lines.
+         *
+         * @param formatter
+         * @return
+         */
+        public B formatter(FileFormatter formatter) {
+            this.formatter = formatter;
+            return self();
+        }
+
+        /**
+         * Defines the default log file directory.
+         *
+         * @param dir
+         * @return
+         */
+        public B dir(File dir) {
+            if (dir != null) {
+                dirPath = dir.getAbsolutePath();
+            }
+            return self();
+        }
+
+        /**
+         * Defines the default tag to use.
+         *
+         * @param tag
+         * @return
+         */
+        public B defaultTag(String tag) {
+            this.defaultTag = tag;
+            return self();
+        }
+
+        /**
+         * Defines the minimum logging level. Default is {@link com.bosphere.filelogger.FLConst.Level#V}.
+         *
+         * @param level
+         * @return
+         */
+        public B minLevel(int level) {
+            this.minLevel = level;
+            return self();
+        }
+
+        /**
+         * Defines whether to enable logging to files.
+         *
+         * @param logToFile
+         * @return
+         */
+        public B logToFile(boolean logToFile) {
+            this.logToFile = logToFile;
+            return self();
+        }
+
+        /**
+         * Defines how log files are managed when exceeding limit. Currently supports limit by file count or total size.
+         *
+         * @param retentionPolicy For possible values refer to {@link com.bosphere.filelogger.FLConst.RetentionPolicy}
+         * @return
+         */
+        public B retentionPolicy(int retentionPolicy) {
+            this.retentionPolicy = retentionPolicy;
+            return self();
+        }
+
+        /**
+         * Defines at maximum how many log files are allowed to be retained.
+         *
+         * @param maxFileCount
+         * @return
+         */
+        public B maxFileCount(int maxFileCount) {
+            this.maxFileCount = maxFileCount;
+            return self();
+        }
+
+        /**
+         * Defines at maximum how much space log files can occupy before trimming.
+         *
+         * @param maxSize
+         * @return
+         */
+        public B maxTotalSize(long maxSize) {
+            this.maxSize = maxSize;
+            return self();
+        }
+
+        /**
+         * Defines at maximum how large a single log file can grow before logging moves on to the
+         * next file of the same period. Only applies to a {@link SequencedFormatter}, such as
+         * {@link DefaultFormatter} which then names files {@code MM_dd_HH_01.txt}, {@code
+         * MM_dd_HH_02.txt} and so on. Pass {@code 0} for no limit. Default is {@code 0}.
+         *
+         * @param maxFileSize
+         * @return
+         */
+        public B maxFileSize(long maxFileSize) {
+            this.maxFileSize = maxFileSize;
+            return self();
+        }
+
+        /**
+         * Defines whether log files are gzipped in background once logging has moved on to the
+         * next file. Compressed files are named after the original with {@code .gz} appended, and
+         * count towards {@link #maxTotalSize(long)} with their compressed size. Default is {@code
+         * false}.
+         *
+         * @param compressRotatedFiles
+         * @return
+         */
+        public B compressRotatedFiles(boolean compressRotatedFiles) {
+            this.compressRotatedFiles = compressRotatedFiles;
+            return self();
+        }
+
+        /**
+         * Defines how many logs can be pending to be written to file. The queue is allocated once
+         * with this capacity (rounded up to a power of 2) when file logging starts.
+         *
+         * @param queueCapacity
+         * @return
+         */
+        public B queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return self();
+        }
+
+        /**
+         * Gives each logging thread a queue of its own with the given capacity (rounded up to a
+         * power of 2) instead of sharing a single one, so that threads logging at the same time
+         * do not compete for slots. The file logger thread writes logs of all queues in order of
+         * log time. Each queue is allocated when its thread first logs to file, so this suits a
+         * limited number of busy threads. The overflow policy then applies per thread. Default is
+         * {@code 0}, which means a single queue of {@link #queueCapacity(int)}.
+         *
+         * @param threadQueueCapacity
+         * @return
+         */
+        public B threadQueueCapacity(int threadQueueCapacity) {
+            this.threadQueueCapacity = threadQueueCapacity;
+            return self();
+        }
+
+        /**
+         * Defines what happens to a log when the file logger queue is full. Default is {@link
+         * com.bosphere.filelogger.FLConst.OverflowPolicy#BLOCK}.
+         *
+         * @param overflowPolicy For possible values refer to {@link com.bosphere.filelogger.FLConst.OverflowPolicy}
+         * @return
+         */
+        public B overflowPolicy(int overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return self();
+        }
+
+        /**
+         * Defines the level below which logs are dropped when the queue is full, used with {@link
+         * com.bosphere.filelogger.FLConst.OverflowPolicy#DROP_BELOW_LEVEL}. Default is {@link
+         * com.bosphere.filelogger.FLConst.Level#W}.
+         *
+         * @param level
+         * @return
+         */
+        public B overflowLevel(int level) {
+            this.overflowLevel = level;
+            return self();
+        }
+
+        /**
+         * Defines whether log lines are formatted on the file logger thread rather than on the
+         * calling thread. When enabled the caller only captures the format string and arguments,
+         * so arguments must not be mutated after being logged. Use a {@link ThreadAwareFormatter}
+         * for lines to carry the id of the calling thread. Default is {@code false}.
+         *
+         * @param deferFormatting
+         * @return
+         */
+        public B deferFormatting(boolean deferFormatting) {
+            this.deferFormatting = deferFormatting;
+            return self();
+        }
+
+        /**
+         * Defines how many bytes are buffered before being written to the log file. Default is
+         * {@link FLConst#DEFAULT_WRITE_BUFFER_SIZE}, minimum is 1kb.
+         *
+         * @param writeBufferSize
+         * @return
+         */
+        public B writeBufferSize(int writeBufferSize) {
+            this.writeBufferSize = writeBufferSize;
+            return self();
+        }
+
+        /**
+         * Defines whether to append to log files through a memory-mapped region instead of write
+         * calls. Logs then reach the kernel as soon as they are processed by the file logger thread
+         * and are not lost if the app process is killed. Such files start with a one-line header
+         * recording where written data ends. Default is {@code false}.
+         *
+         * @param memoryMapped
+         * @return
+         */
+        public B memoryMapped(boolean memoryMapped) {
+            this.memoryMapped = memoryMapped;
+            return self();
+        }
+
+        /**
+         * Defines by how many bytes a memory-mapped log file is extended at a time. Default is
+         * {@link FLConst#DEFAULT_MAPPED_REGION_SIZE}, minimum is 4kb.
+         *
+         * @param mappedRegionSize
+         * @return
+         */
+        public B mappedRegionSize(int mappedRegionSize) {
+            this.mappedRegionSize = mappedRegionSize;
+            return self();
+        }
+
+        /**
+         * Defines every how many bytes each log file is indexed by time and level, in a small file
+         * written alongside it with ".idx" appended to its name. A {@link LogQuery} then only reads
+         * the parts of a file that may hold the logs it is after. Logs are indexed once this many
+         * bytes are written after the previous index entry, e.g. {@code 16 * 1024}. Default is
+         * {@code 0}, no index is written.
+         *
+         * @param bytes
+         * @return
+         */
+        public B indexInterval(int bytes) {
+            this.indexInterval = bytes;
+            return self();
+        }
+
+        /**
+         * Defines how long no logs need to be written before buffered logs are flushed to file.
+         * Default is {@link FLConst#DEFAULT_IDLE_FLUSH_TIMEOUT}.
+         *
+         * @param timeoutMs
+         * @return
+         */
+        public B idleFlushTimeout(long timeoutMs) {
+            this.idleFlushTimeout = timeoutMs;
+            return self();
+        }
+
+        /**
+         * Defines how long no logs need to be written before the log file is closed and house
+         * keeping runs. Pass {@code 0} to keep the file open until it is rotated. Default is {@link
+         * FLConst#DEFAULT_IDLE_CLOSE_TIMEOUT}.
+         *
+         * @param timeoutMs
+         * @return
+         */
+        public B idleCloseTimeout(long timeoutMs) {
+            this.idleCloseTimeout = timeoutMs;
+            return self();
+        }
+
+        /**
+         * Defines the minimum level of logs that get flushed to file without waiting. Logs
+         * processed together are flushed together, so a burst of such logs costs a single
+         * write. Default is {@link com.bosphere.filelogger.FLConst.Level#E}.
+         *
+         * @param level
+         * @return
+         */
+        public B flushLevel(int level) {
+            this.flushLevel = level;
+            return self();
+        }
+
+        /**
+         * Defines at most how long a log stays buffered before being flushed to file, even when
+         * logs keep coming. Pass {@code 0} to only flush as per the other flush settings.
+         * Default is {@code 0}.
+         *
+         * @param latencyMs
+         * @return
+         */
+        public B flushLatency(long latencyMs) {
+            this.flushLatency = latencyMs;
+            return self();
+        }
+
+        /**
+         * Defines at most how many bytes stay buffered before being flushed to file. Pass {@code
+         * 0} to only flush when the write buffer is full. Default is {@code 0}.
+         *
+         * @param flushBytes
+         * @return
+         */
+        public B flushBytes(int flushBytes) {
+            this.flushBytes = flushBytes;
+            return self();
+        }
+
+        /**
+         * Defines whether every flush also waits for logs to be written to the storage device.
+         * Default is {@code false}.
+         *
+         * @param fsync
+         * @return
+         */
+        public B fsync(boolean fsync) {
+            this.fsync = fsync;
+            return self();
+        }
+
+        /**
+         * Defines how long a single write or flush to file may take before writing is considered
+         * degraded, as it is when writing fails. While degraded, logs below {@link
+         * #degradedLevel(int)} are discarded right away so that a slow or failing storage does not
+         * hold up logging, until flushes are fast again. Default is {@code 0}, which only degrades
+         * on failures: slow storage holds up logging unless a threshold is set.
+         *
+         * @param slowWriteThreshold in milliseconds
+         * @return
+         */
+        public B slowWriteThreshold(long slowWriteThreshold) {
+            this.slowWriteThreshold = slowWriteThreshold;
+            return self();
+        }
+
+        /**
+         * Defines the level below which logs are discarded while writing to file is degraded, see
+         * {@link #slowWriteThreshold(long)}. Default is {@link
+         * com.bosphere.filelogger.FLConst.Level#W}.
+         *
+         * @param level
+         * @return
+         */
+        public B degradedLevel(int level) {
+            this.degradedLevel = level;
+            return self();
+        }
+
+        /**
+         * Defines how many logs are kept in memory while writing to file fails, e.g. because the
+         * storage is full. They are written once writing succeeds again, which is retried every
+         * few seconds; the oldest are discarded when more logs fail to be written. Default is
+         * {@link FLConst#DEFAULT_SPILL_CAPACITY}.
+         *
+         * @param spillCapacity
+         * @return
+         */
+        public B spillCapacity(int spillCapacity) {
+            this.spillCapacity = spillCapacity;
+            return self();
+        }
+
+        /**
+         * Limits how many logs per second each tag can output at each level. Logs over the limit
+         * are discarded, and their number is logged once the tag is allowed to log again, or
+         * within a second if it is not. Default is {@code 0}, which means no limit.
+         *
+         * @param logsPerSecond
+         * @param burst how many logs can be output at once before the limit kicks in
+         * @return
+         */
+        public B rateLimit(double logsPerSecond, int burst) {
+            this.rateLimit = logsPerSecond;
+            this.rateLimitBurst = burst;
+            return self();
+        }
+
+        /**
+         * Defines whether a log is discarded if it repeats the previous log of the same tag, i.e.
+         * has the same level, format string and arguments. Arguments other than strings and boxed
+         * primitives are compared by their {@code toString()}, so a log of an object that has
+         * changed since is not discarded. How many times a log was repeated is logged once a
+         * different log of the tag comes along, or within a second if none does. Default is
+         * {@code false}.
+         *
+         * @param collapseRepeats
+         * @return
+         */
+        public B collapseRepeats(boolean collapseRepeats) {
+            this.collapseRepeats = collapseRepeats;
+            return self();
+        }
+
+        /**
+         * Keeps the last {@code crashBufferSize} logs in memory, including those below {@link
+         * #minLevel(int)}, and writes them to a {@code crash_*.txt} file in the log directory when
+         * the app crashes, followed by the stack trace of the crash. This gives the context of a
+         * crash in full without writing verbose logs to file all the time. Messages are only
+         * formatted when the crash happens, so arguments must not be mutated after being logged.
+         * A default uncaught exception handler is installed for this, which passes the crash on to
+         * the handler set before. Default is {@code 0}, which means disabled.
+         *
+         * @param crashBufferSize
+         * @return
+         */
+        public B crashBufferSize(int crashBufferSize) {
+            this.crashBufferSize = crashBufferSize;
+            return self();
+        }
+
+        /**
+         * Reports the counters of the file logging pipeline to {@code listener} every {@code
+         * intervalMs}, as returned by {@link FileLogger#getStats()}. Default is none.
+         *
+         * @param listener
+         * @param intervalMs
+         * @return
+         */
+        public B statsListener(LogStatsListener listener, long intervalMs) {
+            this.statsListener = listener;
+            this.statsInterval = intervalMs;
+            return self();
+        }
+
+        /**
+         * Routes logs accepted by {@code filter} to a separate set of log files, written according
+         * to the file related settings of {@code config} by a thread of their own, so that a busy
+         * sink neither holds up nor evicts logs of the others. Sinks are checked in the order they
+         * are added and the first one accepting a log takes it, logs accepted by none are written
+         * as configured here. Output to logcat and the minimum level are only ever taken from
+         * this configuration.
+         *
+         * @param name identifies the sink across {@link FileLogger#init(LogConfig)} calls
+         * @param filter
+         * @param config must log to file, in a directory not shared with any other sink
+         * @return
+         */
+        public B sink(String name, LogFilter filter, LogConfig config) {
+            if (FLUtil.isEmpty(name) || filter == null || config == null) {
+                throw new IllegalArgumentException("sink name, filter and config are required");
+            }
+            if (!config.b.logToFile || FLUtil.isEmpty(config.b.dirPath)) {
+                throw new IllegalArgumentException("sink [" + name + "] does not log to file");
+            }
+            for (Sink sink : sinks) {
+                if (sink.name.equals(name)) {
+                    throw new IllegalArgumentException("duplicate sink: [" + name + "]");
+                }
+                if (sink.config.b.dirPath.equals(config.b.dirPath)) {
+                    throw new IllegalArgumentException(
+                            "sink [" + name + "] must log to its own directory");
+                }
+            }
+
+            sinks = Arrays.copyOf(sinks, sinks.length + 1);
+            sinks[sinks.length - 1] = new Sink(name, filter, config);
+            return self();
+        }
+
+        public abstract LogConfig build();
+
+        /**
+         * Validates the settings and fills in defaults, to be called by {@link #build()}.
+         */
+        void prepare() {
+            if (FLUtil.isEmpty(defaultTag)) {
+                defaultTag = resolveDefaultTag();
+            }
+            if (asyncLogger && queueCapacity <= 0) {
+                throw new IllegalArgumentException("queue capacity must be > 0");
+            }
+
+            if (rateLimit < 0 || rateLimit > 0 && rateLimitBurst < 1) {
+                throw new IllegalArgumentException("rate limit must be >= 0 with burst >= 1");
+            }
+            if (rateLimit > 0 || collapseRepeats) {
+                throttle = new LogThrottle(defaultTag, rateLimit, rateLimitBurst, collapseRepeats);
+            }
+
+            if (statsListener != null && statsInterval <= 0) {
+                throw new IllegalArgumentException("stats interval must be > 0");
+            }
+
+            if (crashBufferSize < 0) {
+                throw new IllegalArgumentException("crash buffer size must be >= 0");
+            }
+            if (crashBufferSize > 0) {
+                crashBuffer = new CrashBuffer(crashBufferSize);
+            }
+
+            if ((logToFile || crashBuffer != null) && FLUtil.isEmpty(dirPath)) {
+                File dir = resolveDefaultDir();
+                if (dir != null) {
+                    dirPath = dir.getAbsolutePath();
+                } else {
+                    Platform.get().report(FLConst.Level.E,
+                            "failed to resolve default log file directory", null);
+                }
+            }
+
+            if (logToFile) {
+                if (formatter == null) {
+                    formatter = new DefaultFormatter();
+                }
+
+                if (formatter instanceof BinaryFormatter) {
+                    if (memoryMapped) {
+                        throw new IllegalArgumentException(
+                                "binary log files cannot be memory-mapped");
+                    }
+                    // records are encoded from the raw fields on the file logger thread
+                    deferFormatting = true;
+                }
+
+                if (retentionPolicy < 0) {
+                    throw new IllegalArgumentException("invalid retention policy: " + retentionPolicy);
+                }
+
+                switch (retentionPolicy) {
+                    case FILE_COUNT:
+                        if (maxFileCount <= 0) {
+                            throw new IllegalArgumentException("max file count must be > 0");
+                        }
+                        break;
+                    case TOTAL_SIZE:
+                        if (maxSize <= 0) {
+                            throw new IllegalArgumentException("max total size must be > 0");
+                        }
+                        break;
+                }
+
+                if (maxFileSize < 0) {
+                    throw new IllegalArgumentException("max file size must be >= 0");
+                }
+
+                if (queueCapacity <= 0) {
+                    throw new IllegalArgumentException("queue capacity must be > 0");
+                }
+
+                if (threadQueueCapacity < 0) {
+                    throw new IllegalArgumentException("thread queue capacity must be >= 0");
+                }
+
+                if (writeBufferSize < 1024) {
+                    throw new IllegalArgumentException("write buffer size must be >= 1024");
+                }
+
+                if (mappedRegionSize < 4096) {
+                    throw new IllegalArgumentException("mapped region size must be >= 4096");
+                }
+
+                if (indexInterval < 0) {
+                    throw new IllegalArgumentException("index interval must be >= 0");
+                }
+
+                if (idleFlushTimeout <= 0) {
+                    throw new IllegalArgumentException("idle flush timeout must be > 0");
+                }
+
+                if (flushLatency < 0) {
+                    throw new IllegalArgumentException("flush latency must be >= 0");
+                }
+
+                if (flushBytes < 0) {
+                    throw new IllegalArgumentException("flush bytes must be >= 0");
+                }
+
+                if (slowWriteThreshold < 0) {
+                    throw new IllegalArgumentException("slow write threshold must be >= 0");
+                }
+
+                if (spillCapacity < 0) {
+                    throw new IllegalArgumentException("spill capacity must be >= 0");
+                }
+
+                for (Sink sink : sinks) {
+                    if (sink.config.b.dirPath.equals(dirPath)) {
+                        throw new IllegalArgumentException(
+                                "sink [" + sink.name + "] must log to its own directory");
+                    }
+                }
+
+                if (overflowPolicy < FLConst.OverflowPolicy.BLOCK ||
+                        overflowPolicy > FLConst.OverflowPolicy.DROP_BELOW_LEVEL) {
+                    throw new IllegalArgumentException("invalid overflow policy: " + overflowPolicy);
+                }
+            }
+        }
+
+        /**
+         * @return tag to use unless one is passed to {@link #defaultTag(String)}
+         */
+        String resolveDefaultTag() {
+            return FLConst.TAG;
+        }
+
+        /**
+         * @return log file directory to use unless one is passed to {@link #dir(File)}, {@code
+         * null} if there is none
+         */
+        File resolveDefaultDir() {
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private B self() {
+            return (B) this;
+        }
+    }
+
+    static class Sink {
+        final String name;
+        final LogFilter filter;
+        final LogConfig config;
+        final FileLoggerService service;
+
+        Sink(String name, LogFilter filter, LogConfig config) {
+            this.name = name;
+            this.filter = filter;
+            this.config = config;
+            this.service = FileLoggerService.instance(name);
+        }
+    }
+
+    public static class DefaultFormatter implements ThreadAwareFormatter, SequencedFormatter {
+
+        private final ThreadLocal<TimestampEncoder> mTimestamp = new ThreadLocal<TimestampEncoder>() {
+            @Override
+            protected TimestampEncoder initialValue() {
+                return new TimestampEncoder();
+            }
+        };
+
+        private final ThreadLocal<StringBuilder> mLine = new ThreadLocal<StringBuilder>() {
+            @Override
+            protected StringBuilder initialValue() {
+                return new StringBuilder(256);
+            }
+        };
+
+        private final String mExtension;
+
+        // file name is only recomputed when the hour changes
+        private volatile HourlyName mFileName;
+
+        public DefaultFormatter() {
+            this(".txt");
+        }
+
+        DefaultFormatter(String extension) {
+            mExtension = extension;
+        }
+
+        @Override
+        public String formatLine(long timeInMillis, String level, String tag, String log) {
+            Platform platform = Platform.get();
+            return formatLine(timeInMillis, platform.myPid(), platform.myTid(), level, tag, log);
+        }
+
+        @Override
+        public String formatLine(long timeInMillis, int processId, int threadId, String level,
+                String tag, String log) {
+            StringBuilder sb = mLine.get();
+            sb.setLength(0);
+            formatLine(sb, timeInMillis, processId, threadId, level, tag, log);
+            return sb.toString();
+        }
+
+        // 09-23 12:31:53.839 PROCESS_ID-THREAD_ID LEVEL/TAG: LOG
+        @Override
+        public void formatLine(StringBuilder out, long timeInMillis, int processId, int threadId,
+                String level, String tag, String log) {
+            mTimestamp.get().append(timeInMillis, out);
+            out.append(' ')
+                    .append(processId)
+                    .append('-')
+                    .append(threadId)
+                    .append(' ')
+                    .append(level)
+                    .append('/')
+                    .append(tag)
+                    .append(": ")
+                    .append(log);
+        }
+
+        @Override
+        public String formatFileName(long timeInMillis) {
+            HourlyName name = mFileName;
+            if (name == null || !name.contains(timeInMillis)) {
+                name = new HourlyName(timeInMillis, mExtension);
+                mFileName = name;
+            }
+            return name.value;
+        }
+
+        @Override
+        public String formatFileName(long timeInMillis, int sequence) {
+            if (sequence == 0) {
+                return formatFileName(timeInMillis);
+            }
+
+            HourlyName name = mFileName;
+            if (name == null || !name.contains(timeInMillis)) {
+                name = new HourlyName(timeInMillis, mExtension);
+                mFileName = name;
+            }
+            return name.prefix + (sequence < 10 ? "_0" : "_") + sequence + mExtension;
+        }
+
+        private static class HourlyName {
+            final long start, end;
+            final String prefix, value;
+
+            HourlyName(long timeInMillis, String extension) {
+                Calendar c = Calendar.getInstance();
+                c.setTimeInMillis(timeInMillis);
+                c.set(Calendar.MINUTE, 0);
+                c.set(Calendar.SECOND, 0);
+                c.set(Calendar.MILLISECOND, 0);
+                start = c.getTimeInMillis();
+                c.add(Calendar.HOUR_OF_DAY, 1);
+                end = c.getTimeInMillis();
+                prefix = new SimpleDateFormat("MM_dd_HH", Locale.ENGLISH).format(new Date(start));
+                value = prefix + "_00" + extension;
+            }
+
+            boolean contains(long timeInMillis) {
+                return timeInMillis >= start && timeInMillis < end;
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.bosphere.filelogger;
+
+/**
+ * A log read back from file by {@link LogReader}.
+ */
+public class LogEntry {
+
+    private final long mTimeMs;
+    private final int mProcessId;
+    private final int mThreadId;
+    private final int mLevel;
+    private final String mTag;
+    private final String mMessage;
+
+    LogEntry(long timeMs, int processId, int threadId, int level, String tag, String message) {
+        mTimeMs = timeMs;
+        mProcessId = processId;
+        mThreadId = threadId;
+        mLevel = level;
+        mTag = tag;
+        mMessage = message;
+    }
+
+    public long getTimeMs() {
+        return mTimeMs;
+    }
+
+    public int getProcessId() {
+        return mProcessId;
+    }
+
+    public int getThreadId() {
+        return mThreadId;
+    }
+
+    /**
+     * @return For possible values refer to {@link FLConst.Level}
+     */
+    public int getLevel() {
+        return mLevel;
+    }
+
+    public String getTag() {
+        return mTag;
+    }
+
+    /**
+     * @return the message, spanning several lines if it was logged that way, e.g. with a stack
+     * trace
+     */
+    public String getMessage() {
+        return mMessage;
+    }
+
+    /**
+     * @return the log in the layout of {@link LogConfig.DefaultFormatter}
+     */
+    @Override
+    public String toString() {
+        return new LogConfig.DefaultFormatter().formatLine(mTimeMs, mProcessId, mThreadId,
+                FLConst.LevelName.get(mLevel), mTag, mMessage);
+    }
+}
@@ -0,0 +1,87 @@
+package com.bosphere.filelogger;
+
+/**
+ * A reusable slot of {@link LogRingBuffer}. Only per-log data is copied in, everything else is
+ * read from the shared {@link LogConfig}. Fields are written by the producer between {@link
+ * LogQueue#claim()} and {@link LogQueue#publish(LogEvent)}, and cleared when the consumer releases
+ * the slot.
+ */
+class LogEvent {
+
+    // ring buffer the slot belongs to, if any
+    final LogRingBuffer buffer;
+    // position in the ring buffer this slot was last claimed or polled at
+    long sequence;
+
+    LogConfig config;
+    long timeMs;
+    int level;
+
+    // either the formatted line...
+    String line;
+
+    // ...or the raw fields to format it from on the file logger thread
+    int threadId;
+    String tag;
+    String fmt;
+    Object[] args;
+
+    // or no log but a request to list the log files, see LogSnapshot
+    LogSnapshot snapshot;
+
+    LogEvent(LogRingBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    void set(LogConfig config, long timeMs, int level, String line) {
+        this.config = config;
+        this.timeMs = timeMs;
+        this.level = level;
+        this.line = line;
+    }
+
+    void setRaw(LogConfig config, long timeMs, int level, int threadId, String tag, String fmt,
+            Object[] args) {
+        this.config = config;
+        this.timeMs = timeMs;
+        this.level = level;
+        this.threadId = threadId;
+        this.tag = tag;
+        this.fmt = fmt;
+        this.args = args;
+    }
+
+    void setSnapshot(long timeMs, LogSnapshot snapshot) {
+        this.timeMs = timeMs;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * @return a copy of the log data that does not belong to any ring buffer
+     */
+    LogEvent copy() {
+        LogEvent copy = new LogEvent(null);
+        copy.config = config;
+        copy.timeMs = timeMs;
+        copy.level = level;
+        copy.line = line;
+        copy.threadId = threadId;
+        copy.tag = tag;
+        copy.fmt = fmt;
+        copy.args = args;
+        return copy;
+    }
+
+    void clear() {
+        config = null;
+        line = null;
+        tag = null;
+        fmt = null;
+        args = null;
+        if (snapshot != null) {
+            // answered already unless the request was discarded
+            snapshot.cancel();
+            snapshot = null;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.bosphere.filelogger;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bundles the files of a log directory into a single tar archive, e.g. for upload:
+ * <pre>
+ * FileLogger.exporter()
+ *         .from(System.currentTimeMillis() - 24 * 60 * 60 * 1000)
+ *         .exportTo(connection.getOutputStream());
+ * </pre>
+ * Files are streamed as they are, gzipped or not, without being read into memory. Their content is
+ * handed over by {@link FileChannel#transferTo(long, long, WritableByteChannel)}, which copies
+ * within the kernel when exporting to a file or socket channel.
+ * <p>
+ * The file logger thread writing to the directory is asked to flush the current file and report
+ * the size of each file first, so the archive holds every log made before the export started and
+ * no log cut short. Logging goes on meanwhile, logs made after are left out.
+ */
+public class LogExporter {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int BLOCK_SIZE = 512;
+    // how long to wait for the file logger thread to catch up with queued logs
+    private static final long SNAPSHOT_TIMEOUT = 5 * 1000;
+
+    private final File mDir;
+    private long mFrom = Long.MIN_VALUE;
+    private long mTo = Long.MAX_VALUE;
+
+    public LogExporter(File dir) {
+        mDir = dir;
+    }
+
+    /**
+     * Leaves out files that only hold logs from before {@code timeMs}, going by when they were
+     * last modified. Files are exported whole, so logs outside the range may be included.
+     *
+     * @param timeMs
+     * @return
+     */
+    public LogExporter from(long timeMs) {
+        mFrom = timeMs;
+        return this;
+    }
+
+    /**
+     * Leaves out files that only hold logs from {@code timeMs} on. This is only known for files
+     * with an index, see {@link LogConfig.BaseBuilder#indexInterval(int)}.
+     *
+     * @param timeMs
+     * @return
+     */
+    public LogExporter to(long timeMs) {
+        mTo = timeMs;
+        return this;
+    }
+
+    /**
+     * Writes the archive to {@code out}, which is flushed but not closed.
+     *
+     * @return how many bytes were written
+     */
+    public long exportTo(OutputStream out) throws IOException {
+        long written = exportTo(Channels.newChannel(out));
+        out.flush();
+        return written;
+    }
+
+    /**
+     * Writes the archive to {@code out}, which must be in blocking mode and is not closed.
+     *
+     * @return how many bytes were written
+     */
+    public long exportTo(WritableByteChannel out) throws IOException {
+        LogSnapshot snapshot;
+        try {
+            snapshot = FileLoggerService.snapshot(mDir, SNAPSHOT_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for log files");
+        }
+        // the directory is not written to, or at least not in time, files are taken as they are
+        Map<String, Long> sizes = snapshot != null ? snapshot.sizes : listFiles();
+
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+        HashSet<String> exported = new HashSet<>();
+        long written = 0;
+        for (Map.Entry<String, Long> entry : sizes.entrySet()) {
+            String name = entry.getKey();
+            if (!LogOffsetIndex.isIndex(name)) {
+                written += exportFile(out, name, entry.getValue(), exported, block);
+            }
+        }
+
+        // end of archive
+        block.clear();
+        Arrays.fill(block.array(), (byte) 0);
+        written += writeFully(out, block);
+        block.clear();
+        written += writeFully(out, block);
+        return written;
+    }
+
+    private Map<String, Long> listFiles() {
+        File[] files = mDir.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile();
+            }
+        });
+        LinkedHashMap<String, Long> sizes = new LinkedHashMap<>();
+        if (files != null) {
+            Arrays.sort(files, LogFileIndex.FILE_COMPARATOR);
+            for (File file : files) {
+                // what is appended after is left out, as with a snapshot
+                sizes.put(file.getName(), file.length());
+            }
+        }
+        return sizes;
+    }
+
+    /**
+     * @param size how many bytes of the file to export at most
+     * @return how many bytes were written
+     */
+    private long exportFile(WritableByteChannel out, String name, long size,
+            HashSet<String> exported, ByteBuffer block) throws IOException {
+        File file = new File(mDir, name);
+        FileInputStream in = open(file);
+        if (in == null && !LogFileCompressor.isCompressed(name)) {
+            // compressed since, the compressed file holds all of it
+            file = new File(mDir, name + LogFileCompressor.SUFFIX);
+            size = Long.MAX_VALUE;
+            in = open(file);
+        }
+        if (in == null || !exported.add(file.getName())) {
+            FLUtil.closeQuietly(in);
+            return 0;
+        }
+
+        try {
+            if (!isInRange(file)) {
+                return 0;
+            }
+
+            FileChannel channel = in.getChannel();
+            size = Math.min(size, channel.size());
+            writeHeader(block, file.getName(), size, file.lastModified());
+            long written = writeFully(out, block);
+
+            long pos = 0;
+            while (pos < size) {
+                long transferred = channel.transferTo(pos, size - pos, out);
+                if (transferred <= 0 && pos >= channel.size()) {
+                    break;
+                }
+                pos += transferred;
+            }
+            written += pos;
+
+            // the size in the header is binding, as well as padding to a whole block
+            long padding = size - pos + (BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE;
+            Arrays.fill(block.array(), (byte) 0);
+            while (padding > 0) {
+                block.clear();
+                block.limit((int) Math.min(padding, BLOCK_SIZE));
+                int n = writeFully(out, block);
+                padding -= n;
+                written += n;
+            }
+            return written;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static FileInputStream open(File file) {
+        try {
+            return new FileInputStream(file);
+        } catch (FileNotFoundException e) {
+            // deleted by house keeping or compressed meanwhile
+            return null;
+        }
+    }
+
+    private boolean isInRange(File file) throws IOException {
+        if (file.lastModified() + LogReader.MODIFIED_SLACK < mFrom) {
+            return false;
+        }
+        if (mTo == Long.MAX_VALUE) {
+            return true;
+        }
+
+        List<LogOffsetIndex.Segment> segments = LogOffsetIndex.read(file);
+        if (segments == null) {
+            return true;
+        }
+        long covered = 0;
+        long earliest = Long.MAX_VALUE;
+        for (LogOffsetIndex.Segment segment : segments) {
+            if (segment.start > covered) {
+                // not all logs are indexed
+                return true;
+            }
+            if (segment.levels != 0) {
+                earliest = Math.min(earliest, segment.minTime);
+            }
+            covered = segment.end;
+        }
+        // logs past the index are newer
+        return earliest < mTo || earliest == Long.MAX_VALUE;
+    }
+
+    /**
+     * Fills {@code block} with a ustar header, see POSIX.1-1988.
+     */
+    private static void writeHeader(ByteBuffer block, String name, long size, long modified) {
+        byte[] header = block.array();
+        Arrays.fill(header, (byte) 0);
+        byte[] nameBytes = name.getBytes(UTF_8);
+        System.arraycopy(nameBytes, 0, header, 0, Math.min(nameBytes.length, 100));
+        writeOctal(header, 100, 8, 0644);
+        writeOctal(header, 108, 8, 0);
+        writeOctal(header, 116, 8, 0);
+        writeOctal(header, 124, 12, size);
+        writeOctal(header, 136, 12, Math.max(modified / 1000, 0));
+        header[156] = '0';
+        System.arraycopy("ustar\u000000".getBytes(UTF_8), 0, header, 257, 8);
+
+        // computed with the checksum field itself taken as spaces
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        writeOctal(header, 148, 7, checksum);
+        block.clear();
+    }
+
+    /**
+     * Writes {@code value} as zero-padded octal digits followed by a NUL.
+     */
+    private static void writeOctal(byte[] header, int offset, int length, long value) {
+        int end = offset + length - 1;
+        header[end] = 0;
+        for (int i = end - 1; i >= offset; i--) {
+            header[i] = (byte) ('0' + (value & 7));
+            value >>>= 3;
+        }
+    }
+
+    private static int writeFully(WritableByteChannel out, ByteBuffer buf) throws IOException {
+        int written = 0;
+        while (buf.hasRemaining()) {
+            written += out.write(buf);
+        }
+        return written;
+    }
+}
@@ -0,0 +1,164 @@
+package com.bosphere.filelogger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzips log files that are no longer written to on a low priority thread. A file is compressed to
+ * the same name with {@link #SUFFIX} appended, then deleted. If the compressed file already exists
+ * the new data is appended as another gzip member, which readers treat as one stream. The
+ * compressed file keeps the modification time of the original, and its {@link LogOffsetIndex}.
+ * <p>
+ * Results are not applied to the {@link LogFileIndex} here; the file logger thread collects them
+ * with {@link #pollResult()} so that the index stays confined to that thread.
+ */
+class LogFileCompressor {
+
+    static final String SUFFIX = ".gz";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BlockingQueue<File> mPending = new LinkedBlockingQueue<>();
+    private final ConcurrentLinkedQueue<Result> mResults = new ConcurrentLinkedQueue<>();
+    private boolean mStarted;
+    // file the file logger thread has open, it is never compressed and deleted from under it
+    private volatile File mActive;
+
+    static boolean isCompressed(String fileName) {
+        return fileName.endsWith(SUFFIX);
+    }
+
+    /**
+     * Only called from the file logger thread.
+     */
+    void submit(File file) {
+        if (!mStarted) {
+            mStarted = true;
+            new CompressThread().start();
+        }
+        mPending.offer(file);
+    }
+
+    /**
+     * Only called from the file logger thread.
+     *
+     * @param file the file being written to, or {@code null} if none
+     */
+    void setActive(File file) {
+        mActive = file;
+    }
+
+    Result pollResult() {
+        return mResults.poll();
+    }
+
+    static class Result {
+        final File source, target;
+        final long size;
+
+        Result(File source, File target, long size) {
+            this.source = source;
+            this.target = target;
+            this.size = size;
+        }
+    }
+
+    private class CompressThread extends Thread {
+
+        CompressThread() {
+            super("FileLoggerCompressor");
+        }
+
+        @Override
+        public void run() {
+            Platform.get().setLowestPriority();
+            byte[] buf = new byte[BUFFER_SIZE];
+            try {
+                for (;;) {
+                    File source = mPending.take();
+                    if (source.equals(mActive)) {
+                        Platform.get().report(FLConst.Level.W,
+                                "skipped compressing log file in use: [" +
+                                        source.getAbsolutePath() + "]", null);
+                        continue;
+                    }
+
+                    File target = new File(source.getParentFile(), source.getName() + SUFFIX);
+                    boolean existed = target.exists();
+                    try {
+                        compress(source, target, existed, buf);
+                        LogOffsetIndex.onCompressed(source, target, existed);
+                        // keeps the file in place when log files are ordered by modification time
+                        target.setLastModified(source.lastModified());
+                        if (!source.delete()) {
+                            Platform.get().report(FLConst.Level.W,
+                                    "failed to delete compressed log file: [" +
+                                            source.getAbsolutePath() + "]", null);
+                        }
+                        mResults.offer(new Result(source, target, target.length()));
+                    } catch (IOException e) {
+                        Platform.get().report(FLConst.Level.E, "failed to compress log file: [" +
+                                source.getAbsolutePath() + "]", e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Platform.get().report(FLConst.Level.E, "log file compressor thread is interrupted",
+                        e);
+            }
+        }
+
+        private void compress(File source, File target, boolean existed, byte[] buf)
+                throws IOException {
+            FileInputStream in = null;
+            FileOutputStream file = null;
+            GZIPOutputStream out = null;
+            // length of the compressed file before the new member, once opened
+            long start = -1;
+            try {
+                in = new FileInputStream(source);
+                file = new FileOutputStream(target, true);
+                start = file.getChannel().size();
+                out = new GZIPOutputStream(file, BUFFER_SIZE);
+                int read;
+                while ((read = in.read(buf)) != -1) {
+                    out.write(buf, 0, read);
+                }
+                out.finish();
+            } catch (IOException e) {
+                FLUtil.closeQuietly(out);
+                FLUtil.closeQuietly(file);
+                out = null;
+                if (!existed) {
+                    target.delete();
+                } else if (start >= 0) {
+                    // a member cut short would make the whole file unreadable
+                    truncate(target, start);
+                }
+                throw e;
+            } finally {
+                FLUtil.closeQuietly(in);
+                FLUtil.closeQuietly(out);
+            }
+        }
+
+        private void truncate(File file, long length) {
+            RandomAccessFile raf = null;
+            try {
+                raf = new RandomAccessFile(file, "rw");
+                raf.getChannel().truncate(length);
+            } catch (IOException e) {
+                Platform.get().report(FLConst.Level.E, "failed to restore compressed log file: [" +
+                        file.getAbsolutePath() + "]", e);
+            } finally {
+                FLUtil.closeQuietly(raf);
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.bosphere.filelogger;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory list of the files in a log directory, oldest first, along with their sizes. The
+ * directory is only listed once when the index is built; afterwards the file logger thread keeps
+ * it up to date as files are written and deleted, so that house keeping never has to list or stat
+ * the directory again. Files added to the directory by others are not picked up until the index
+ * is rebuilt. Index files of {@link LogOffsetIndex} are left out, they are deleted along with their
+ * log files.
+ */
+class LogFileIndex {
+
+    static final Comparator<File> FILE_COMPARATOR = new Comparator<File>() {
+        @Override
+        public int compare(File o1, File o2) {
+            long lm1 = o1.lastModified();
+            long lm2 = o2.lastModified();
+            return lm1 < lm2 ? -1 : lm1 == lm2 ? 0 : 1;
+        }
+    };
+
+    private final File mDir;
+    // iteration order is from oldest to newest
+    private final LinkedHashMap<String, Entry> mEntries = new LinkedHashMap<>();
+    private long mTotalSize;
+
+    LogFileIndex(File dir) {
+        mDir = dir;
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        Arrays.sort(files, FILE_COMPARATOR);
+        for (File f : files) {
+            if (f.isFile() && !LogOffsetIndex.isIndex(f.getName())) {
+                Entry entry = new Entry(f, f.length());
+                mEntries.put(f.getName(), entry);
+                mTotalSize += entry.size;
+            }
+        }
+    }
+
+    File getDir() {
+        return mDir;
+    }
+
+    int count() {
+        return mEntries.size();
+    }
+
+    long totalSize() {
+        return mTotalSize;
+    }
+
+    boolean contains(String name) {
+        return mEntries.containsKey(name);
+    }
+
+    /**
+     * @return size of the file, or {@code -1} if not indexed
+     */
+    long sizeOf(String name) {
+        Entry entry = mEntries.get(name);
+        return entry != null ? entry.size : -1;
+    }
+
+    /**
+     * Records the current size of a file, which is added as the newest file if not yet indexed.
+     */
+    void update(String name, long size) {
+        Entry entry = mEntries.get(name);
+        if (entry == null) {
+            entry = new Entry(new File(mDir, name), 0);
+            mEntries.put(name, entry);
+        }
+        mTotalSize += size - entry.size;
+        entry.size = size;
+    }
+
+    /**
+     * Swaps a file for its compressed version, which takes over its place in the order. If the
+     * compressed file is indexed already it is merged into the same entry.
+     *
+     * @return {@code false} if the original file is no longer indexed
+     */
+    boolean replace(String name, File compressed, long size) {
+        Entry source = mEntries.get(name);
+        if (source == null) {
+            return false;
+        }
+
+        Entry target = new Entry(compressed, size);
+        LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(mEntries);
+        mEntries.clear();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            if (e.getKey().equals(name)) {
+                mEntries.put(compressed.getName(), target);
+            } else if (e.getKey().equals(compressed.getName())) {
+                mTotalSize -= e.getValue().size;
+            } else {
+                mEntries.put(e.getKey(), e.getValue());
+            }
+        }
+        mTotalSize += size - source.size;
+        return true;
+    }
+
+    Iterable<String> names() {
+        return mEntries.keySet();
+    }
+
+    /**
+     * Deletes the oldest files until at most {@code maxCount} remain, sparing {@code keep}.
+     *
+     * @return how many files were deleted
+     */
+    int trimToCount(int maxCount, String keep) {
+        int deleted = 0;
+        Iterator<Map.Entry<String, Entry>> it = mEntries.entrySet().iterator();
+        while (mEntries.size() > maxCount && it.hasNext()) {
+            Map.Entry<String, Entry> e = it.next();
+            if (e.getKey().equals(keep)) {
+                continue;
+            }
+
+            if (delete(e.getValue().file)) {
+                deleted++;
+            }
+            // a file that can't be deleted has most likely been removed by someone else
+            mTotalSize -= e.getValue().size;
+            it.remove();
+        }
+        return deleted;
+    }
+
+    /**
+     * Deletes the oldest files until they take up at most {@code maxSize} bytes in total, sparing
+     * {@code keep}.
+     *
+     * @return how many files were deleted
+     */
+    int trimToSize(long maxSize, String keep) {
+        int deleted = 0;
+        Iterator<Map.Entry<String, Entry>> it = mEntries.entrySet().iterator();
+        while (mTotalSize > maxSize && it.hasNext()) {
+            Map.Entry<String, Entry> e = it.next();
+            if (e.getKey().equals(keep)) {
+                continue;
+            }
+
+            if (delete(e.getValue().file)) {
+                deleted++;
+            }
+            mTotalSize -= e.getValue().size;
+            it.remove();
+        }
+        return deleted;
+    }
+
+    private static boolean delete(File file) {
+        LogOffsetIndex.of(file).delete();
+        return file.delete();
+    }
+
+    private static class Entry {
+        final File file;
+        long size;
+
+        Entry(File file, long size) {
+            this.file = file;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.bosphere.filelogger;
+
+/**
+ * Decides which logs are written to a sink, see {@link LogConfig.BaseBuilder#sink(String,
+ * LogFilter, LogConfig)}. Called on the logging thread for every log that passes the minimum level.
+ */
+public interface LogFilter {
+    boolean accept(int level, String tag);
+}
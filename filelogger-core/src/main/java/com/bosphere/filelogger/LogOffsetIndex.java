@@ -0,0 +1,236 @@
+package com.bosphere.filelogger;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sparse index of a log file, kept in a sidecar file named after it with {@link #SUFFIX} appended,
+ * see {@link LogConfig.BaseBuilder#indexInterval(int)}. The log file is cut into segments of
+ * roughly the index interval, always between two logs, and each segment is described by a fixed
+ * size entry once it is complete:
+ * <pre>
+ * start offset (8)  end offset (8)  earliest time (8)  latest time (8)  levels (4)
+ * </pre>
+ * Levels is a bit mask with bit {@code 1 << level} set for each level logged in the segment, a
+ * segment without levels holds no logs, e.g. the header of a binary file. Offsets count bytes
+ * before compression. Bytes between segments and after the last one, as left when the app is killed
+ * or when indexing is enabled for a file written before, are not covered and have to be read.
+ * <p>
+ * A compressed file keeps the index of the original only if it covers the whole file, so the index
+ * of a compressed file is always complete.
+ */
+class LogOffsetIndex {
+
+    static final String SUFFIX = ".idx";
+
+    private static final byte[] MAGIC = {'F', 'L', 'X', '1'};
+    private static final int ENTRY_LENGTH = 36;
+    // an index larger than this is not the work of the writer below
+    private static final long MAX_LENGTH = 4 * 1024 * 1024;
+
+    static File of(File logFile) {
+        return new File(logFile.getParentFile(), logFile.getName() + SUFFIX);
+    }
+
+    static boolean isIndex(String fileName) {
+        return fileName.endsWith(SUFFIX);
+    }
+
+    /**
+     * @return segments in the order they were written, or {@code null} if {@code logFile} has no
+     * readable index
+     */
+    static List<Segment> read(File logFile) throws IOException {
+        File file = of(logFile);
+        long length = file.length();
+        if (length < MAGIC.length || length > MAX_LENGTH) {
+            return null;
+        }
+
+        byte[] bytes = new byte[(int) length];
+        DataInputStream in;
+        try {
+            in = new DataInputStream(new FileInputStream(file));
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+        try {
+            in.readFully(bytes);
+        } catch (EOFException e) {
+            // truncated meanwhile
+            return null;
+        } finally {
+            FLUtil.closeQuietly(in);
+        }
+
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (bytes[i] != MAGIC[i]) {
+                return null;
+            }
+        }
+
+        ByteBuffer buf = ByteBuffer.wrap(bytes, MAGIC.length, bytes.length - MAGIC.length);
+        ArrayList<Segment> segments = new ArrayList<>(buf.remaining() / ENTRY_LENGTH);
+        // an entry cut short was being written when the app was killed
+        while (buf.remaining() >= ENTRY_LENGTH) {
+            segments.add(new Segment(buf.getLong(), buf.getLong(), buf.getLong(), buf.getLong(),
+                    buf.getInt()));
+        }
+        return segments;
+    }
+
+    /**
+     * Carries the index of {@code source} over to its compressed version, or deletes it if it is
+     * incomplete. Only called from the compressor thread, before {@code source} is deleted.
+     *
+     * @param appended whether {@code source} has been appended to an existing compressed file,
+     *                 whose index then no longer covers it entirely either
+     */
+    static void onCompressed(File source, File target, boolean appended) {
+        File index = of(source);
+        File targetIndex = of(target);
+        if (appended) {
+            targetIndex.delete();
+        }
+
+        List<Segment> segments = null;
+        if (!appended && index.exists()) {
+            try {
+                segments = read(source);
+            } catch (IOException ignored) {
+            }
+        }
+
+        if (segments == null || segments.isEmpty() ||
+                segments.get(segments.size() - 1).end != source.length() ||
+                !index.renameTo(targetIndex)) {
+            index.delete();
+        }
+    }
+
+    static class Segment {
+        final long start, end;
+        final long minTime, maxTime;
+        final int levels;
+
+        Segment(long start, long end, long minTime, long maxTime, int levels) {
+            this.start = start;
+            this.end = end;
+            this.minTime = minTime;
+            this.maxTime = maxTime;
+            this.levels = levels;
+        }
+    }
+
+    /**
+     * Appends segments to the index of the log file being written. An index that fails to be
+     * written is given up on until the next file, as logs outside of it are still found, only
+     * slower. Only used by the file logger thread.
+     */
+    static class Writer {
+
+        private final File mFile;
+        private final int mInterval;
+        private final ByteBuffer mEntry = ByteBuffer.allocate(ENTRY_LENGTH);
+        private FileOutputStream mOut;
+
+        private long mStart;
+        private long mMinTime;
+        private long mMaxTime;
+        private int mLevels;
+
+        /**
+         * @param created whether the log file is new, so that an index left behind by a file of the
+         *                same name is discarded
+         * @param runStart length of the log file before it was opened
+         * @param dataStart length of the log file after headers were written
+         */
+        Writer(File logFile, int interval, boolean created, long runStart, long dataStart) {
+            mFile = of(logFile);
+            mInterval = interval;
+            try {
+                mOut = new FileOutputStream(mFile, !created);
+                if (mOut.getChannel().size() == 0) {
+                    mOut.write(MAGIC);
+                }
+            } catch (IOException e) {
+                onWriteFailed(e);
+            }
+
+            mStart = created ? 0 : runStart;
+            if (dataStart > mStart) {
+                writeEntry(mStart, dataStart, 0, 0, 0);
+            }
+            reset(dataStart);
+        }
+
+        /**
+         * Accounts for a log about to be written at {@code offset}.
+         */
+        void add(long offset, long timeMs, int level) {
+            if (mLevels != 0 && offset - mStart >= mInterval) {
+                writeEntry(mStart, offset, mMinTime, mMaxTime, mLevels);
+                reset(offset);
+            }
+
+            if (timeMs < mMinTime) {
+                mMinTime = timeMs;
+            }
+            if (timeMs > mMaxTime) {
+                mMaxTime = timeMs;
+            }
+            mLevels |= 1 << level;
+        }
+
+        /**
+         * @param end length of the log file once closed
+         */
+        void close(long end) {
+            if (mLevels != 0) {
+                writeEntry(mStart, end, mMinTime, mMaxTime, mLevels);
+            }
+            if (mOut != null) {
+                FLUtil.closeQuietly(mOut);
+                mOut = null;
+            }
+        }
+
+        private void reset(long start) {
+            mStart = start;
+            mMinTime = Long.MAX_VALUE;
+            mMaxTime = Long.MIN_VALUE;
+            mLevels = 0;
+        }
+
+        private void writeEntry(long start, long end, long minTime, long maxTime, int levels) {
+            if (mOut == null) {
+                return;
+            }
+
+            ByteBuffer entry = mEntry;
+            entry.clear();
+            entry.putLong(start).putLong(end).putLong(minTime).putLong(maxTime).putInt(levels);
+            try {
+                // one write call per entry, readers skip an entry cut short
+                mOut.write(entry.array(), 0, ENTRY_LENGTH);
+            } catch (IOException e) {
+                onWriteFailed(e);
+            }
+        }
+
+        private void onWriteFailed(IOException e) {
+            Platform.get().report(FLConst.Level.W,
+                    "failed to write log index: [" + mFile.getAbsolutePath() + "]", e);
+            FLUtil.closeQuietly(mOut);
+            mOut = null;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.bosphere.filelogger;
+
+import java.io.File;
+
+/**
+ * Selects logs to read back from the files of a log directory, oldest first:
+ * <pre>
+ * LogReader reader = FileLogger.query()
+ *         .from(System.currentTimeMillis() - 10 * 60 * 1000)
+ *         .minLevel(FLConst.Level.W)
+ *         .open();
+ * try {
+ *     LogEntry entry;
+ *     while ((entry = reader.read()) != null) {
+ *         ...
+ *     }
+ * } finally {
+ *     reader.close();
+ * }
+ * </pre>
+ * Text files are expected in the layout of {@link LogConfig.DefaultFormatter}; lines that do not
+ * start a log belong to the message of the log before. Files written with {@link BinaryFormatter}
+ * and compressed files are read as well. Files with an index, see {@link
+ * LogConfig.BaseBuilder#indexInterval(int)}, are only read where logs may match, other files are
+ * read through. Logs still buffered by the file logger thread are not found.
+ */
+public class LogQuery {
+
+    final File dir;
+    long from = Long.MIN_VALUE;
+    long to = Long.MAX_VALUE;
+    int minLevel = FLConst.Level.V;
+    String tag;
+
+    public LogQuery(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * @param timeMs earliest time of logs to read, inclusive
+     * @return
+     */
+    public LogQuery from(long timeMs) {
+        this.from = timeMs;
+        return this;
+    }
+
+    /**
+     * @param timeMs latest time of logs to read, exclusive
+     * @return
+     */
+    public LogQuery to(long timeMs) {
+        this.to = timeMs;
+        return this;
+    }
+
+    /**
+     * @param level For possible values refer to {@link FLConst.Level}
+     * @return
+     */
+    public LogQuery minLevel(int level) {
+        this.minLevel = level;
+        return this;
+    }
+
+    /**
+     * @param tag only read logs of this tag, {@code null} to read logs of all tags
+     * @return
+     */
+    public LogQuery tag(String tag) {
+        this.tag = tag;
+        return this;
+    }
+
+    /**
+     * Lists the log files to read; their content is only read as logs are asked for.
+     */
+    public LogReader open() {
+        return new LogReader(this);
+    }
+
+    boolean accept(long timeMs, int level, String tag) {
+        return timeMs >= from && timeMs < to && level >= minLevel &&
+                (this.tag == null || this.tag.equals(tag));
+    }
+
+    boolean accept(LogOffsetIndex.Segment segment) {
+        // levels at or above the minimum
+        int levels = minLevel <= 0 ? -1 : -1 << Math.min(minLevel, 31);
+        return (segment.levels & levels) != 0 && segment.maxTime >= from &&
+                segment.minTime < to;
+    }
+}
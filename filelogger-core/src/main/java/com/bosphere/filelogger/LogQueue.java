@@ -0,0 +1,174 @@
+package com.bosphere.filelogger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands logs from the logging threads over to the file logger thread in recycled {@link LogEvent}
+ * slots: a producer fills the slot returned by {@link #claim()} and hands it over with {@link
+ * #publish(LogEvent)}, the consumer reads the slot returned by {@link #poll()} and gives it back
+ * with {@link #release(LogEvent)}. There is a single consumer, which parks while waiting for logs.
+ */
+abstract class LogQueue {
+
+    // how long a blocked producer parks before retrying
+    private static final long CLAIM_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final int CLAIM_SPINS = 64;
+
+    private volatile Thread mWaiter;
+    // thread draining the queue, producers stop waiting for a slot once it has terminated
+    private volatile Thread mConsumer;
+
+    abstract int capacity();
+
+    abstract int size();
+
+    /**
+     * @return a slot to be filled and then passed to {@link #publish(LogEvent)}, or {@code null}
+     * if the queue is full
+     */
+    abstract LogEvent claim();
+
+    abstract void publish(LogEvent event);
+
+    /**
+     * Discards the oldest log standing in the way of the calling thread claiming a slot.
+     *
+     * @return {@code false} if there was nothing to discard
+     */
+    abstract boolean evict();
+
+    /**
+     * @return a published slot to be passed to {@link #release(LogEvent)} once consumed, or
+     * {@code null} if the queue is empty
+     */
+    abstract LogEvent poll();
+
+    abstract void release(LogEvent event);
+
+    void setConsumer(Thread consumer) {
+        mConsumer = consumer;
+    }
+
+    /**
+     * Waits until a slot is available.
+     *
+     * @return {@code null} if the calling thread is interrupted while waiting, in which case the
+     * interrupt status is preserved, or if the consumer has terminated and no slot would ever be
+     * freed
+     */
+    LogEvent claimWait() {
+        int spins = 0;
+        LogEvent event;
+        while ((event = claim()) == null) {
+            if (Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+            Thread consumer = mConsumer;
+            if (consumer != null && consumer.getState() == Thread.State.TERMINATED) {
+                return null;
+            }
+
+            backOff(spins++);
+        }
+        return event;
+    }
+
+    /**
+     * Discards the oldest logs until a slot is available. While the oldest slot is claimed by
+     * another producer but not yet published nothing can be discarded, the calling thread backs off
+     * the same way as in {@link #claimWait()}.
+     *
+     * @param dropped incremented for each log discarded
+     * @return {@code null} if the calling thread is interrupted while waiting, in which case the
+     * interrupt status is preserved
+     */
+    LogEvent claimEvicting(AtomicLong dropped) {
+        int spins = 0;
+        LogEvent event;
+        while ((event = claim()) == null) {
+            if (evict()) {
+                dropped.incrementAndGet();
+                continue;
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+            backOff(spins++);
+        }
+        return event;
+    }
+
+    private void backOff(int spins) {
+        if (spins < CLAIM_SPINS) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(this, CLAIM_PARK_NANOS);
+        }
+    }
+
+    LogEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+        LogEvent event = poll();
+        if (event != null) {
+            return event;
+        }
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            for (;;) {
+                mWaiter = Thread.currentThread();
+                event = poll();
+                if (event != null) {
+                    return event;
+                }
+
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return null;
+                }
+
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            mWaiter = null;
+        }
+    }
+
+    LogEvent take() throws InterruptedException {
+        LogEvent event = poll();
+        if (event != null) {
+            return event;
+        }
+
+        try {
+            for (;;) {
+                mWaiter = Thread.currentThread();
+                event = poll();
+                if (event != null) {
+                    return event;
+                }
+
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            mWaiter = null;
+        }
+    }
+
+    /**
+     * Wakes up the consumer if it is waiting, to be called after publishing.
+     */
+    void signal() {
+        Thread waiter = mWaiter;
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package com.bosphere.filelogger;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the logs selected by a {@link LogQuery}, one file at a time. Only the file being read is
+ * open, and only the parts of it that may hold matching logs are read. Not thread-safe.
+ */
+public class LogReader implements Closeable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String LEVELS = "VDIWE";
+    private static final int BUFFER_SIZE = 16 * 1024;
+    // file modification times are rounded down to 2 seconds on FAT
+    static final long MODIFIED_SLACK = 2 * 1000;
+    private static final long[] WHOLE_FILE = {0, Long.MAX_VALUE};
+
+    private final LogQuery mQuery;
+    private final File[] mFiles;
+    private int mNextFile;
+    private Cursor mCursor;
+
+    LogReader(LogQuery query) {
+        mQuery = query;
+        File[] files = query.dir.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                String name = file.getName();
+                return file.isFile() && !LogOffsetIndex.isIndex(name) &&
+                        !name.startsWith(CrashBuffer.FILE_PREFIX);
+            }
+        });
+        if (files == null) {
+            files = new File[0];
+        }
+        Arrays.sort(files, LogFileIndex.FILE_COMPARATOR);
+        mFiles = files;
+    }
+
+    /**
+     * @return the next matching log, or {@code null} if there are no more
+     */
+    public LogEntry read() throws IOException {
+        for (;;) {
+            if (mCursor == null && !openNext()) {
+                return null;
+            }
+
+            LogEntry entry = mCursor.next();
+            if (entry != null) {
+                return entry;
+            }
+            mCursor.close();
+            mCursor = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        mNextFile = mFiles.length;
+        if (mCursor != null) {
+            mCursor.close();
+            mCursor = null;
+        }
+    }
+
+    private boolean openNext() throws IOException {
+        while (mNextFile < mFiles.length) {
+            File file = mFiles[mNextFile++];
+            long modified = file.lastModified();
+            if (modified + MODIFIED_SLACK < mQuery.from) {
+                // nothing has been written to the file since before the range
+                continue;
+            }
+
+            boolean compressed = LogFileCompressor.isCompressed(file.getName());
+            long[] ranges = findRanges(file, compressed);
+            if (ranges.length == 0) {
+                continue;
+            }
+
+            InputStream in;
+            try {
+                in = new FileInputStream(file);
+            } catch (FileNotFoundException e) {
+                // deleted by house keeping meanwhile
+                continue;
+            }
+
+            try {
+                if (compressed) {
+                    in = new GZIPInputStream(in, BUFFER_SIZE);
+                }
+                in = new BufferedInputStream(in, BUFFER_SIZE);
+                if (isBinary(in)) {
+                    // records rely on those before them, so binary files are always read through
+                    mCursor = new BinaryCursor(in);
+                } else {
+                    mCursor = new TextCursor(in, ranges, modified);
+                }
+                return true;
+            } catch (EOFException e) {
+                // compressed file is still being written
+                FLUtil.closeQuietly(in);
+            } catch (IOException e) {
+                FLUtil.closeQuietly(in);
+                throw e;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return start and end offsets of the parts of {@code file} that may hold matching logs, in
+     * pairs
+     */
+    private long[] findRanges(File file, boolean compressed) throws IOException {
+        List<LogOffsetIndex.Segment> segments = LogOffsetIndex.read(file);
+        if (segments == null) {
+            return WHOLE_FILE;
+        }
+
+        long[] ranges = new long[(segments.size() + 1) * 4];
+        int count = 0;
+        long covered = 0;
+        for (LogOffsetIndex.Segment segment : segments) {
+            if (segment.start < covered || segment.end < segment.start) {
+                // the file has been replaced since
+                return WHOLE_FILE;
+            }
+
+            if (segment.start > covered) {
+                // not indexed, e.g. written by a run that was killed
+                count = addRange(ranges, count, covered, segment.start);
+            }
+            if (segment.levels != 0 && mQuery.accept(segment)) {
+                count = addRange(ranges, count, segment.start, segment.end);
+            }
+            covered = segment.end;
+        }
+
+        // the index of a compressed file is complete, unless it has been cut short since
+        if (compressed ? originalSize(file) != (covered & 0xffffffffL) : file.length() > covered) {
+            count = addRange(ranges, count, covered, Long.MAX_VALUE);
+        }
+        return Arrays.copyOf(ranges, count);
+    }
+
+    /**
+     * @return size of the original of a compressed file modulo 2^32, as recorded at the end of
+     * the file by gzip, or {@code -1} if unknown
+     */
+    private static long originalSize(File file) {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            long length = raf.length();
+            if (length < 4) {
+                return -1;
+            }
+            raf.seek(length - 4);
+            // little endian
+            return raf.read() | raf.read() << 8 | raf.read() << 16 | (long) raf.read() << 24;
+        } catch (IOException e) {
+            return -1;
+        } finally {
+            FLUtil.closeQuietly(raf);
+        }
+    }
+
+    private static int addRange(long[] ranges, int count, long start, long end) {
+        if (count > 0 && ranges[count - 1] == start) {
+            ranges[count - 1] = end;
+            return count;
+        }
+        ranges[count] = start;
+        ranges[count + 1] = end;
+        return count + 2;
+    }
+
+    private static boolean isBinary(InputStream in) throws IOException {
+        byte[] magic = BinaryLogEncoder.MAGIC;
+        in.mark(magic.length);
+        try {
+            for (byte b : magic) {
+                if (in.read() != b) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            in.reset();
+        }
+    }
+
+    private abstract static class Cursor implements Closeable {
+
+        final InputStream mIn;
+
+        Cursor(InputStream in) {
+            mIn = in;
+        }
+
+        /**
+         * @return {@code null} at the end of the file
+         */
+        abstract LogEntry next() throws IOException;
+
+        @Override
+        public void close() throws IOException {
+            mIn.close();
+        }
+    }
+
+    private class BinaryCursor extends Cursor {
+
+        private final BinaryLogDecoder.RecordReader mRecords;
+
+        BinaryCursor(InputStream in) {
+            super(in);
+            mRecords = new BinaryLogDecoder.RecordReader(in);
+        }
+
+        @Override
+        LogEntry next() throws IOException {
+            BinaryLogDecoder.RecordReader r = mRecords;
+            while (r.next()) {
+                if (mQuery.accept(r.time, r.level, r.tag)) {
+                    return new LogEntry(r.time, r.processId, r.threadId, r.level, r.tag, r.log);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Reads lines within the given ranges, skipping over the rest. A log spans from a line that
+     * starts with a header up to the next such line.
+     */
+    private class TextCursor extends Cursor {
+
+        private final long[] mRanges;
+        private final TimestampDecoder mTimestamp = new TimestampDecoder();
+        private final byte[] mBuffer = new byte[BUFFER_SIZE];
+        private int mBufferPos;
+        private int mBufferEnd;
+        // file offset of the next byte to read
+        private long mPos;
+        private int mRange;
+        private boolean mEnded;
+        private byte[] mLine = new byte[256];
+
+        // log being read, if it matches
+        private boolean mPending;
+        private long mTime;
+        private int mProcessId;
+        private int mThreadId;
+        private int mLevel;
+        private String mTag;
+        private final StringBuilder mMessage = new StringBuilder();
+
+        // header of the line last read
+        private long mHeaderTime;
+        private int mHeaderProcessId;
+        private int mHeaderThreadId;
+        private int mHeaderLevel;
+        private String mHeaderTag;
+
+        TextCursor(InputStream in, long[] ranges, long modified) {
+            super(in);
+            mRanges = ranges;
+            mTimestamp.setReference(modified > 0 ? modified : System.currentTimeMillis());
+        }
+
+        @Override
+        LogEntry next() throws IOException {
+            for (;;) {
+                if (mEnded || mRange >= mRanges.length) {
+                    return takePending();
+                }
+
+                LogEntry entry = null;
+                if (mPos < mRanges[mRange]) {
+                    // ranges start with a log, so the one being read is complete
+                    entry = takePending();
+                    skipTo(mRanges[mRange]);
+                } else if (mPos >= mRanges[mRange + 1]) {
+                    mRange += 2;
+                } else {
+                    int length = readLine();
+                    if (length >= 0) {
+                        entry = onLine(length);
+                    }
+                }
+                if (entry != null) {
+                    return entry;
+                }
+            }
+        }
+
+        private LogEntry onLine(int length) {
+            byte[] line = mLine;
+            int messageStart = parseHeader(line, length);
+            if (messageStart < 0) {
+                if (mPending) {
+                    mMessage.append('\n').append(new String(line, 0, length, UTF_8));
+                }
+                return null;
+            }
+
+            // a line with a header starts a new log
+            LogEntry entry = takePending();
+            if (mQuery.accept(mHeaderTime, mHeaderLevel, mHeaderTag)) {
+                mPending = true;
+                mTime = mHeaderTime;
+                mProcessId = mHeaderProcessId;
+                mThreadId = mHeaderThreadId;
+                mLevel = mHeaderLevel;
+                mTag = mHeaderTag;
+                mMessage.append(new String(line, messageStart, length - messageStart, UTF_8));
+            }
+            return entry;
+        }
+
+        /**
+         * Parses the header of a log, "09-23 12:31:53.839 PROCESS_ID-THREAD_ID LEVEL/TAG: ".
+         *
+         * @return where the message starts, or {@code -1} if the line does not start a log
+         */
+        private int parseHeader(byte[] line, int length) {
+            long time = mTimestamp.decode(line, 0, length);
+            if (time == Long.MIN_VALUE) {
+                return -1;
+            }
+
+            int pos = TimestampDecoder.LENGTH;
+            if (pos >= length || line[pos++] != ' ') {
+                return -1;
+            }
+            int processId = 0;
+            while (pos < length && line[pos] >= '0' && line[pos] <= '9') {
+                processId = processId * 10 + line[pos++] - '0';
+            }
+            if (pos >= length || line[pos++] != '-') {
+                return -1;
+            }
+            int threadId = 0;
+            while (pos < length && line[pos] >= '0' && line[pos] <= '9') {
+                threadId = threadId * 10 + line[pos++] - '0';
+            }
+            if (pos + 2 >= length || line[pos] != ' ' || line[pos + 2] != '/') {
+                return -1;
+            }
+            int level = LEVELS.indexOf(line[pos + 1]);
+            if (level < 0) {
+                return -1;
+            }
+            int tagStart = pos + 3;
+            int tagEnd = tagStart;
+            while (tagEnd + 1 < length && (line[tagEnd] != ':' || line[tagEnd + 1] != ' ')) {
+                tagEnd++;
+            }
+            if (tagEnd + 1 >= length) {
+                return -1;
+            }
+
+            mHeaderTime = time;
+            mHeaderProcessId = processId;
+            mHeaderThreadId = threadId;
+            mHeaderLevel = level;
+            mHeaderTag = new String(line, tagStart, tagEnd - tagStart, UTF_8);
+            return tagEnd + 2;
+        }
+
+        private LogEntry takePending() {
+            if (!mPending) {
+                return null;
+            }
+
+            mPending = false;
+            LogEntry entry = new LogEntry(mTime, mProcessId, mThreadId, mLevel, mTag,
+                    mMessage.toString());
+            mMessage.setLength(0);
+            return entry;
+        }
+
+        /**
+         * Reads up to the next line break into {@link #mLine}. A NUL byte ends the file, as it
+         * fills the unwritten part of a memory-mapped file.
+         *
+         * @return length of the line without the line break, or {@code -1} at the end of the file
+         */
+        private int readLine() throws IOException {
+            int length = 0;
+            for (;;) {
+                if (mBufferPos == mBufferEnd && !fill()) {
+                    mEnded = true;
+                    return length > 0 ? length : -1;
+                }
+
+                byte b = mBuffer[mBufferPos++];
+                mPos++;
+                if (b == '\n') {
+                    return length;
+                }
+                if (b == 0) {
+                    mEnded = true;
+                    return length > 0 ? length : -1;
+                }
+
+                if (length == mLine.length) {
+                    mLine = Arrays.copyOf(mLine, length * 2);
+                }
+                mLine[length++] = b;
+            }
+        }
+
+        private boolean fill() throws IOException {
+            int read;
+            try {
+                read = mIn.read(mBuffer);
+            } catch (EOFException e) {
+                // compressed file is still being written
+                return false;
+            }
+            if (read <= 0) {
+                return false;
+            }
+            mBufferPos = 0;
+            mBufferEnd = read;
+            return true;
+        }
+
+        private void skipTo(long offset) throws IOException {
+            long skip = offset - mPos;
+            int buffered = mBufferEnd - mBufferPos;
+            if (skip <= buffered) {
+                mBufferPos += (int) skip;
+                mPos = offset;
+                return;
+            }
+
+            mBufferPos = mBufferEnd;
+            mPos += buffered;
+            while (mPos < offset) {
+                long skipped = mIn.skip(offset - mPos);
+                if (skipped <= 0) {
+                    // skip() may stop short before the end of the file
+                    if (mIn.read() == -1) {
+                        mEnded = true;
+                        return;
+                    }
+                    skipped = 1;
+                }
+                mPos += skipped;
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.bosphere.filelogger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-capacity ring buffer feeding the file logger thread. Slots are allocated once up front and
+ * claimed with a CAS on a sequence number (bounded MPMC queue as described by Dmitry Vyukov), so
+ * producers never take a lock. There is a single regular consumer, but producers may also poll
+ * from the head in order to evict the oldest entry when the buffer is full.
+ */
+class LogRingBuffer extends LogQueue {
+
+    private final LogEvent[] mSlots;
+    private final AtomicLongArray mSequences;
+    private final int mMask;
+    private final AtomicLong mHead = new AtomicLong();
+    private final AtomicLong mTail = new AtomicLong();
+
+    LogRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("invalid capacity: " + capacity);
+        }
+
+        // with a single slot, a published slot would look free to claim again
+        int size = FLUtil.ceilPowerOfTwo(Math.max(capacity, 2));
+        mSlots = new LogEvent[size];
+        mSequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            mSlots[i] = new LogEvent(this);
+            mSequences.set(i, i);
+        }
+        mMask = size - 1;
+    }
+
+    @Override
+    int capacity() {
+        return mSlots.length;
+    }
+
+    @Override
+    int size() {
+        long size = mTail.get() - mHead.get();
+        return size < 0 ? 0 : size > mSlots.length ? mSlots.length : (int) size;
+    }
+
+    @Override
+    LogEvent claim() {
+        long pos = mTail.get();
+        for (;;) {
+            int index = (int) (pos & mMask);
+            long diff = mSequences.get(index) - pos;
+            if (diff == 0) {
+                if (mTail.compareAndSet(pos, pos + 1)) {
+                    LogEvent event = mSlots[index];
+                    event.sequence = pos;
+                    return event;
+                }
+                pos = mTail.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                pos = mTail.get();
+            }
+        }
+    }
+
+    @Override
+    void publish(LogEvent event) {
+        long pos = event.sequence;
+        mSequences.set((int) (pos & mMask), pos + 1);
+        signal();
+    }
+
+    @Override
+    boolean evict() {
+        LogEvent oldest = poll();
+        if (oldest == null) {
+            return false;
+        }
+        release(oldest);
+        return true;
+    }
+
+    @Override
+    LogEvent poll() {
+        long pos = mHead.get();
+        for (;;) {
+            int index = (int) (pos & mMask);
+            long diff = mSequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (mHead.compareAndSet(pos, pos + 1)) {
+                    LogEvent event = mSlots[index];
+                    event.sequence = pos;
+                    return event;
+                }
+                pos = mHead.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                pos = mHead.get();
+            }
+        }
+    }
+
+    /**
+     * @return the slot at the head if it has been published, without removing it. Only meant for
+     * the consumer, the slot may be evicted and reused by a producer meanwhile.
+     */
+    LogEvent peek() {
+        long pos = mHead.get();
+        int index = (int) (pos & mMask);
+        return mSequences.get(index) == pos + 1 ? mSlots[index] : null;
+    }
+
+    @Override
+    void release(LogEvent event) {
+        long pos = event.sequence;
+        event.clear();
+        mSequences.set((int) (pos & mMask), pos + mSlots.length);
+    }
+}
@@ -0,0 +1,49 @@
+package com.bosphere.filelogger;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Files of a log directory along with how many of their bytes hold complete logs, as known to the
+ * file logger thread writing to it. Requested by queueing the snapshot like a log, so it covers
+ * every log queued before it; the file logger thread flushes the current file before filling it
+ * in. Bytes appended afterwards are left out, so files can be read while logging goes on.
+ */
+class LogSnapshot {
+
+    final File dir;
+    // oldest first, filled in by the file logger thread before the snapshot is completed
+    final LinkedHashMap<String, Long> sizes = new LinkedHashMap<>();
+    private final CountDownLatch mDone = new CountDownLatch(1);
+    private volatile boolean mTaken;
+
+    LogSnapshot(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Called by the file logger thread once {@link #sizes} are filled in.
+     */
+    void complete() {
+        mTaken = true;
+        mDone.countDown();
+    }
+
+    /**
+     * Called when the request is discarded or the file logger thread does not write to {@link
+     * #dir}.
+     */
+    void cancel() {
+        mDone.countDown();
+    }
+
+    /**
+     * @return whether the file logger thread has filled in {@link #sizes}, {@code false} if it
+     * does not write to {@link #dir} or did not answer in time
+     */
+    boolean await(long timeoutMs) throws InterruptedException {
+        return mDone.await(timeoutMs, TimeUnit.MILLISECONDS) && mTaken;
+    }
+}
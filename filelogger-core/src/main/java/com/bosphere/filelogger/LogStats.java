@@ -0,0 +1,207 @@
+package com.bosphere.filelogger;
+
+import java.util.Arrays;
+
+/**
+ * A snapshot of the counters of the file logging pipeline, summed over all sinks, see {@link
+ * FileLogger#getStats()}. Counters accumulate from the start of the process, so rates are derived
+ * from the difference between two snapshots.
+ */
+public class LogStats {
+
+    long timeMs;
+    int queueSize;
+    int queueCapacity;
+    long droppedCount;
+    long spilledCount;
+    boolean degraded;
+    long writtenCount;
+    long writtenBytes;
+    final Histogram writeLatency = new Histogram();
+    final Histogram flushLatency = new Histogram();
+    final Histogram houseKeepingDuration = new Histogram();
+
+    LogStats() {
+    }
+
+    /**
+     * @return when the snapshot was taken, see {@link System#currentTimeMillis()}
+     */
+    public long getTimeMs() {
+        return timeMs;
+    }
+
+    /**
+     * @return how many logs are waiting to be written to file
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * @return how many logs can wait to be written to file before logging overflows, see {@link
+     * LogConfig.BaseBuilder#overflowPolicy(int)}. With a queue per thread, the capacity of a
+     * single thread's queue is counted
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @return how many logs have been discarded so far, same as {@link
+     * FileLogger#getDroppedCount()}
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * @return how many logs failed to be written and are kept in memory for now, see {@link
+     * LogConfig.BaseBuilder#spillCapacity(int)}
+     */
+    public long getSpilledCount() {
+        return spilledCount;
+    }
+
+    /**
+     * @return whether logs below {@link LogConfig.BaseBuilder#degradedLevel(int)} are discarded
+     * because writing to file is slow or failing, see {@link
+     * LogConfig.BaseBuilder#slowWriteThreshold(long)}
+     */
+    public boolean isDegraded() {
+        return degraded;
+    }
+
+    /**
+     * @return how many logs have been written to file
+     */
+    public long getWrittenCount() {
+        return writtenCount;
+    }
+
+    /**
+     * @return how many bytes have been written to file, before compression
+     */
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    /**
+     * @return how long writing each log took, which includes writing out the buffer whenever
+     * it is full
+     */
+    public Histogram getWriteLatency() {
+        return writeLatency;
+    }
+
+    /**
+     * @return how long flushes took, including syncs if enabled; its count is the number of
+     * flushes
+     */
+    public Histogram getFlushLatency() {
+        return flushLatency;
+    }
+
+    /**
+     * @return how long each pass of house keeping took, see {@link
+     * LogConfig.BaseBuilder#retentionPolicy(int)}
+     */
+    public Histogram getHouseKeepingDuration() {
+        return houseKeepingDuration;
+    }
+
+    @Override
+    public String toString() {
+        return "LogStats{queue=" + queueSize + "/" + queueCapacity +
+                ", dropped=" + droppedCount +
+                ", spilled=" + spilledCount +
+                ", degraded=" + degraded +
+                ", written=" + writtenCount +
+                ", bytes=" + writtenBytes +
+                ", write=" + writeLatency +
+                ", flush=" + flushLatency +
+                ", houseKeeping=" + houseKeepingDuration +
+                "}";
+    }
+
+    /**
+     * Distribution of durations, counted into buckets by powers of two microseconds: bucket
+     * {@code 0} holds durations below 1 microsecond, bucket {@code i} those from 2<sup>i-1</sup>
+     * up to 2<sup>i</sup> microseconds, and the last bucket everything longer.
+     */
+    public static class Histogram {
+
+        static final int BUCKETS = 32;
+
+        final long[] buckets = new long[BUCKETS];
+        long count;
+        long totalNanos;
+        long maxNanos;
+
+        Histogram() {
+        }
+
+        static int bucketOf(long nanos) {
+            long micros = nanos / 1000;
+            return Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+        }
+
+        /**
+         * @return upper bound of {@code bucket} in nanoseconds
+         */
+        public static long upperBoundNanos(int bucket) {
+            return (1L << bucket) * 1000;
+        }
+
+        /**
+         * @return how many durations fell into each bucket
+         */
+        public long[] getBuckets() {
+            return Arrays.copyOf(buckets, BUCKETS);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getMeanNanos() {
+            return count > 0 ? totalNanos / count : 0;
+        }
+
+        /**
+         * @param percentile between {@code 0} and {@code 100}
+         * @return upper bound of the bucket the percentile falls into, at most the maximum
+         */
+        public long getPercentileNanos(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank = (long) Math.ceil(count * Math.min(Math.max(percentile, 0), 100) / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(upperBoundNanos(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "{count=" + count +
+                    ", mean=" + getMeanNanos() / 1000 + "us" +
+                    ", p99=" + getPercentileNanos(99) / 1000 + "us" +
+                    ", max=" + maxNanos / 1000 + "us}";
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.bosphere.filelogger;
+
+/**
+ * Receives {@link LogStats} periodically, see {@link
+ * LogConfig.BaseBuilder#statsListener(LogStatsListener, long)}. Called on a background thread of
+ * its own, so it may take its time, although a slow listener delays the next report.
+ */
+public interface LogStatsListener {
+    void onStats(LogStats stats);
+}
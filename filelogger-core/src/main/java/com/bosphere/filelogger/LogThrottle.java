@@ -0,0 +1,296 @@
+package com.bosphere.filelogger;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds back logs from tags that log too often, see {@link LogConfig.BaseBuilder#rateLimit(double,
+ * int)} and {@link LogConfig.BaseBuilder#collapseRepeats(boolean)}. Called on every logging thread,
+ * so all state is kept in per tag atomics and nothing is locked once a tag has been seen. <p> Logs
+ * held back are reported by a summary log when the tag gets through again, or by a background
+ * thread within a second otherwise, so that counts are not lost when the tag goes quiet.
+ */
+class LogThrottle {
+
+    private static final long SECOND_NS = 1000 * 1000 * 1000;
+    // how long held back logs may wait to be reported
+    private static final long REPORT_DELAY_MS = 1000;
+
+    private final String mDefaultTag;
+    // time a bucket takes to earn one log, and how far ahead of now it may be spent
+    private final long mInterval;
+    private final long mTolerance;
+    private final boolean mCollapseRepeats;
+
+    // by level
+    private final ArrayList<ConcurrentHashMap<String, Bucket>> mBuckets = new ArrayList<>();
+    private final ConcurrentHashMap<String, AtomicReference<Last>> mLast =
+            new ConcurrentHashMap<>();
+
+    // logs have been held back since the last report, guarded by this when set
+    private volatile boolean mPending;
+    // started once logs are first held back, guarded by this
+    private Thread mReporter;
+    private boolean mClosed;
+
+    LogThrottle(String defaultTag, double logsPerSecond, int burst, boolean collapseRepeats) {
+        mDefaultTag = defaultTag != null ? defaultTag : "";
+        mInterval = logsPerSecond > 0 ? (long) (SECOND_NS / logsPerSecond) : 0;
+        mTolerance = mInterval * (burst - 1);
+        mCollapseRepeats = collapseRepeats;
+        for (int level = FLConst.Level.V; level <= FLConst.Level.E; level++) {
+            mBuckets.add(new ConcurrentHashMap<String, Bucket>());
+        }
+    }
+
+    /**
+     * Takes one log from the rate limit of the tag at the given level.
+     *
+     * @return whether the log may be written
+     */
+    boolean acquire(int level, String tag) {
+        if (mInterval == 0) {
+            return true;
+        }
+
+        tag = resolve(tag);
+        ConcurrentHashMap<String, Bucket> buckets = mBuckets.get(level);
+        Bucket bucket = buckets.get(tag);
+        if (bucket == null) {
+            Bucket created = new Bucket();
+            bucket = buckets.putIfAbsent(tag, created);
+            if (bucket == null) {
+                bucket = created;
+            }
+        }
+
+        // generic cell rate algorithm: a token bucket kept as the time it will be full again
+        long now = System.nanoTime();
+        for (;;) {
+            long full = bucket.full.get();
+            long start = full - now > 0 ? full : now;
+            if (start - now > mTolerance) {
+                bucket.suppressed.incrementAndGet();
+                onHeldBack();
+                return false;
+            }
+            if (bucket.full.compareAndSet(full, start + mInterval)) {
+                break;
+            }
+        }
+
+        // report at most once a second while a tag keeps hitting the limit
+        long reported = bucket.reported.get();
+        if (bucket.suppressed.get() > 0 && now - reported >= SECOND_NS &&
+                bucket.reported.compareAndSet(reported, now)) {
+            int suppressed = bucket.suppressed.getAndSet(0);
+            if (suppressed > 0) {
+                FileLogger.printSummary(level, tag, "%d logs suppressed over rate limit",
+                        suppressed);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares a log to the last one of the same tag, by level, format string and arguments. Those
+     * of basic types are compared by value, others by their {@code toString()} when logged, as
+     * they may have changed since.
+     *
+     * @return {@code false} if the log repeats the last one and is not to be written
+     */
+    boolean collapse(int level, String tag, String fmt, Object[] args) {
+        if (!mCollapseRepeats) {
+            return true;
+        }
+
+        tag = resolve(tag);
+        AtomicReference<Last> ref = mLast.get(tag);
+        if (ref == null) {
+            AtomicReference<Last> created = new AtomicReference<>();
+            ref = mLast.putIfAbsent(tag, created);
+            if (ref == null) {
+                ref = created;
+            }
+        }
+
+        Last last = ref.get();
+        if (last != null && last.matches(level, fmt, args)) {
+            last.repeats.incrementAndGet();
+            onHeldBack();
+            return false;
+        }
+
+        ref.set(new Last(level, fmt, args));
+        if (last != null) {
+            int repeats = last.repeats.getAndSet(0);
+            if (repeats > 0) {
+                FileLogger.printSummary(last.level, tag, "last message repeated %d times", repeats);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reports the logs held back so far and stops the reporter thread, to be called when the
+     * config is replaced.
+     */
+    void close() {
+        synchronized (this) {
+            mClosed = true;
+            notifyAll();
+        }
+        report();
+    }
+
+    private void onHeldBack() {
+        if (mPending) {
+            return;
+        }
+
+        synchronized (this) {
+            if (mClosed) {
+                return;
+            }
+            mPending = true;
+            if (mReporter == null) {
+                mReporter = new Reporter();
+                mReporter.start();
+            } else {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Logs how many logs have been held back per tag since the last report.
+     */
+    private void report() {
+        for (int level = 0; level < mBuckets.size(); level++) {
+            for (Map.Entry<String, Bucket> e : mBuckets.get(level).entrySet()) {
+                Bucket bucket = e.getValue();
+                int suppressed = bucket.suppressed.getAndSet(0);
+                if (suppressed > 0) {
+                    bucket.reported.set(System.nanoTime());
+                    FileLogger.printSummary(level, e.getKey(), "%d logs suppressed over rate limit",
+                            suppressed);
+                }
+            }
+        }
+
+        for (Map.Entry<String, AtomicReference<Last>> e : mLast.entrySet()) {
+            Last last = e.getValue().get();
+            int repeats = last != null ? last.repeats.getAndSet(0) : 0;
+            if (repeats > 0) {
+                FileLogger.printSummary(last.level, e.getKey(), "last message repeated %d times",
+                        repeats);
+            }
+        }
+    }
+
+    private String resolve(String tag) {
+        return tag == null || tag.length() == 0 ? mDefaultTag : tag;
+    }
+
+    private static class Bucket {
+        // time the bucket is full again
+        final AtomicLong full = new AtomicLong(System.nanoTime());
+        final AtomicInteger suppressed = new AtomicInteger();
+        // when suppressed logs were last reported
+        final AtomicLong reported = new AtomicLong(full.get() - SECOND_NS);
+    }
+
+    private static class Last {
+        // how many times the log has been repeated
+        final AtomicInteger repeats = new AtomicInteger();
+        final int level;
+        final String fmt;
+        // see snapshot(), so that neither changes to the arguments nor the arguments themselves
+        // are kept
+        final Object[] args;
+
+        Last(int level, String fmt, Object[] args) {
+            this.level = level;
+            this.fmt = fmt;
+            if (args != null && args.length > 0) {
+                this.args = new Object[args.length];
+                for (int i = 0; i < args.length; i++) {
+                    this.args[i] = snapshot(args[i]);
+                }
+            } else {
+                this.args = null;
+            }
+        }
+
+        boolean matches(int level, String fmt, Object[] args) {
+            if (this.level != level || !(fmt == null ? this.fmt == null : fmt.equals(this.fmt))) {
+                return false;
+            }
+
+            int count = args != null ? args.length : 0;
+            if (count != (this.args != null ? this.args.length : 0)) {
+                return false;
+            }
+            for (int i = 0; i < count; i++) {
+                Object arg = snapshot(args[i]);
+                if (arg == null ? this.args[i] != null : !arg.equals(this.args[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return the argument itself if immutable, its string otherwise
+         */
+        private static Object snapshot(Object arg) {
+            if (arg == null || arg instanceof String || arg instanceof Integer ||
+                    arg instanceof Long || arg instanceof Boolean || arg instanceof Double ||
+                    arg instanceof Float || arg instanceof Character || arg instanceof Short ||
+                    arg instanceof Byte) {
+                return arg;
+            }
+            try {
+                return String.valueOf(arg);
+            } catch (RuntimeException e) {
+                // equal to nothing, so the log is never collapsed
+                return new Object();
+            }
+        }
+    }
+
+    private class Reporter extends Thread {
+
+        Reporter() {
+            super(FLConst.TAG + "-Throttle");
+            // must not keep the process alive by itself
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (;;) {
+                    synchronized (LogThrottle.this) {
+                        while (!mPending && !mClosed) {
+                            LogThrottle.this.wait();
+                        }
+                        if (mClosed) {
+                            return;
+                        }
+                    }
+
+                    // a burst is reported once, shortly after it started
+                    Thread.sleep(REPORT_DELAY_MS);
+                    mPending = false;
+                    report();
+                }
+            } catch (InterruptedException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.bosphere.filelogger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Appends text or raw bytes to the current log file. Characters are encoded as UTF-8 straight into
+ * the byte buffer provided by the subclass, which decides how bytes reach the file. NUL characters
+ * are written as {@code '?'}, since a NUL byte marks the end of text, see {@link
+ * MappedLogWriter}. Only used by the file logger thread.
+ */
+abstract class LogWriter {
+
+    // longest UTF-8 sequence emitted for a single code point
+    private static final int MAX_CHAR_BYTES = 4;
+
+    ByteBuffer mBuffer;
+
+    void append(CharSequence text) throws IOException {
+        ByteBuffer buf = mBuffer;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            if (buf.remaining() < MAX_CHAR_BYTES) {
+                makeRoom();
+                buf = mBuffer;
+            }
+
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buf.put(c != 0 ? (byte) c : (byte) '?');
+            } else if (c < 0x800) {
+                buf.put((byte) (0xc0 | c >> 6));
+                buf.put((byte) (0x80 | c & 0x3f));
+            } else if (isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < n &&
+                        Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, text.charAt(++i));
+                    buf.put((byte) (0xf0 | cp >> 18));
+                    buf.put((byte) (0x80 | cp >> 12 & 0x3f));
+                    buf.put((byte) (0x80 | cp >> 6 & 0x3f));
+                    buf.put((byte) (0x80 | cp & 0x3f));
+                } else {
+                    // malformed input
+                    buf.put((byte) '?');
+                }
+            } else {
+                buf.put((byte) (0xe0 | c >> 12));
+                buf.put((byte) (0x80 | c >> 6 & 0x3f));
+                buf.put((byte) (0x80 | c & 0x3f));
+            }
+        }
+    }
+
+    void append(char c) throws IOException {
+        if (c < 0x80 && c != 0) {
+            if (!mBuffer.hasRemaining()) {
+                makeRoom();
+            }
+            mBuffer.put((byte) c);
+        } else {
+            append(String.valueOf(c));
+        }
+    }
+
+    void write(int b) throws IOException {
+        if (!mBuffer.hasRemaining()) {
+            makeRoom();
+        }
+        mBuffer.put((byte) b);
+    }
+
+    /**
+     * @return how many bytes {@link #append(CharSequence)} encodes {@code text} into
+     */
+    static int encodedLength(CharSequence text) {
+        int length = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < n &&
+                        Character.isLowSurrogate(text.charAt(i + 1))) {
+                    i++;
+                    length += 4;
+                } else {
+                    length++;
+                }
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    // Character.isSurrogate() is only available from API 19
+    private static boolean isSurrogate(char c) {
+        return c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE;
+    }
+
+    /**
+     * Ensures {@link #mBuffer} has room for at least one more encoded character.
+     */
+    abstract void makeRoom() throws IOException;
+
+    /**
+     * @return size of the file including bytes not flushed yet
+     */
+    abstract long length();
+
+    /**
+     * @return how many bytes have been appended since the last flush
+     */
+    abstract int bufferedBytes();
+
+    /**
+     * Hands appended bytes over to the file system.
+     */
+    abstract void flush() throws IOException;
+
+    /**
+     * Forces flushed bytes to be written to the storage device.
+     */
+    abstract void sync() throws IOException;
+
+    abstract void close() throws IOException;
+}
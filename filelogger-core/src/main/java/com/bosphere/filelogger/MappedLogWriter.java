@@ -0,0 +1,186 @@
+package com.bosphere.filelogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Appends into a memory-mapped region of the log file, which is extended region by region. Bytes
+ * are handed to the kernel as soon as they are put, so they survive the process being killed
+ * without any write call.
+ * <p>
+ * The file starts with a fixed-size text header holding the end offset of written data:
+ * <pre>
+ * #FLMMAP 0000000000001a2b       \n
+ * </pre>
+ * The offset is updated on every flush, and a reopened file resumes from there after skipping any
+ * bytes written past it, up to the first NUL: it fills the unwritten part of a region, while
+ * {@link LogWriter#append(CharSequence)} never writes it. The trailing zero region is cut off when
+ * the writer is closed.
+ */
+class MappedLogWriter extends LogWriter {
+
+    static final int HEADER_LENGTH = 32;
+
+    private static final byte[] MAGIC = {'#', 'F', 'L', 'M', 'M', 'A', 'P', ' '};
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final int OFFSET_DIGITS = 16;
+
+    private final RandomAccessFile mFile;
+    private final FileChannel mChannel;
+    private final MappedByteBuffer mHeader;
+    private final int mRegionSize;
+    private MappedByteBuffer mRegion;
+    private long mRegionStart;
+    private long mFlushedEnd;
+
+    /**
+     * @return whether {@code file} is either missing, empty or previously written by this class
+     */
+    static boolean canAppend(File file) {
+        if (!file.exists() || file.length() == 0) {
+            return true;
+        }
+
+        if (file.length() < HEADER_LENGTH) {
+            return false;
+        }
+
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            byte[] magic = new byte[MAGIC.length];
+            raf.readFully(magic);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (magic[i] != MAGIC[i]) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            FLUtil.closeQuietly(raf);
+        }
+    }
+
+    MappedLogWriter(File file, int regionSize) throws IOException {
+        mFile = new RandomAccessFile(file, "rw");
+        mChannel = mFile.getChannel();
+        mRegionSize = regionSize;
+
+        try {
+            boolean created = mChannel.size() == 0;
+            mHeader = mChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_LENGTH);
+            long end;
+            if (created) {
+                mHeader.put(MAGIC);
+                while (mHeader.position() < HEADER_LENGTH - 1) {
+                    mHeader.put((byte) ' ');
+                }
+                mHeader.put((byte) '\n');
+                end = HEADER_LENGTH;
+                writeEnd(end);
+            } else {
+                end = readEnd();
+                mFlushedEnd = end;
+            }
+
+            mapRegion(end);
+            if (!created) {
+                skipWritten();
+            }
+        } catch (IOException e) {
+            mFile.close();
+            throw e;
+        }
+    }
+
+    @Override
+    void makeRoom() throws IOException {
+        long end = position();
+        mapRegion(end);
+        writeEnd(end);
+    }
+
+    @Override
+    long length() {
+        return position();
+    }
+
+    @Override
+    int bufferedBytes() {
+        return (int) (position() - mFlushedEnd);
+    }
+
+    @Override
+    void flush() throws IOException {
+        writeEnd(position());
+    }
+
+    @Override
+    void sync() throws IOException {
+        mRegion.force();
+        mHeader.force();
+    }
+
+    @Override
+    void close() throws IOException {
+        try {
+            long end = position();
+            writeEnd(end);
+            mChannel.truncate(end);
+        } finally {
+            mFile.close();
+        }
+    }
+
+    private long position() {
+        return mRegionStart + mBuffer.position();
+    }
+
+    private void mapRegion(long start) throws IOException {
+        mRegionStart = start;
+        mRegion = mChannel.map(FileChannel.MapMode.READ_WRITE, start, mRegionSize);
+        mBuffer = mRegion;
+    }
+
+    // moves past bytes that were written after the end offset was last recorded
+    private void skipWritten() throws IOException {
+        for (;;) {
+            ByteBuffer buf = mBuffer;
+            int pos = buf.position();
+            int limit = buf.limit();
+            while (pos < limit && buf.get(pos) != 0) {
+                pos++;
+            }
+            buf.position(pos);
+            if (pos < limit) {
+                return;
+            }
+            mapRegion(mRegionStart + limit);
+        }
+    }
+
+    private long readEnd() throws IOException {
+        long end = 0;
+        for (int i = 0; i < OFFSET_DIGITS; i++) {
+            int digit = Character.digit(mHeader.get(MAGIC.length + i), 16);
+            if (digit < 0) {
+                throw new IOException("corrupted mapped log file header");
+            }
+            end = end << 4 | digit;
+        }
+        return Math.max(end, HEADER_LENGTH);
+    }
+
+    private void writeEnd(long end) {
+        mFlushedEnd = end;
+        for (int i = 0; i < OFFSET_DIGITS; i++) {
+            mHeader.put(MAGIC.length + i, HEX[(int) (end >>> (60 - 4 * i)) & 0xf]);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.bosphere.filelogger;
+
+/**
+ * Builds a log message on demand. Passed to {@link FileLogger} so that expensive messages are only
+ * constructed when the level is actually logged.
+ */
+public interface MessageSupplier {
+    String get();
+}
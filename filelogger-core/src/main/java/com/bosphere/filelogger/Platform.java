@@ -0,0 +1,75 @@
+package com.bosphere.filelogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * What the logger needs from the runtime it runs on. This implementation suits a plain JVM, the
+ * Android library installs one backed by the Android APIs when it is configured.
+ */
+class Platform {
+
+    private static volatile Platform sPlatform = new Platform();
+
+    private volatile int mPid = -1;
+
+    static Platform get() {
+        return sPlatform;
+    }
+
+    static void install(Platform platform) {
+        sPlatform = platform;
+    }
+
+    int myPid() {
+        int pid = mPid;
+        if (pid < 0) {
+            pid = 0;
+            try {
+                // links to the directory of the current process on Linux, java.lang.management
+                // would do elsewhere but is not available on Android
+                pid = Integer.parseInt(new File("/proc/self").getCanonicalFile().getName());
+            } catch (IOException | NumberFormatException ignored) {
+            }
+            mPid = pid;
+        }
+        return pid;
+    }
+
+    int myTid() {
+        return (int) Thread.currentThread().getId();
+    }
+
+    /**
+     * Lowers the priority of the current thread as far as possible, for background work.
+     */
+    void setLowestPriority() {
+        Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+    }
+
+    String getStackTraceString(Throwable tr) {
+        if (tr == null) {
+            return "";
+        }
+        StringWriter sw = new StringWriter();
+        PrintWriter pw = new PrintWriter(sw);
+        tr.printStackTrace(pw);
+        pw.flush();
+        return sw.toString();
+    }
+
+    /**
+     * Reports an error of the logger itself, which must not go through the logger.
+     *
+     * @param level For possible values refer to {@link FLConst.Level}
+     * @param tr may be {@code null}
+     */
+    void report(int level, String msg, Throwable tr) {
+        System.err.println(FLConst.LevelName.get(level) + "/" + FLConst.TAG + ": " + msg);
+        if (tr != null) {
+            tr.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.bosphere.filelogger;
+
+/**
+ * A {@link FileFormatter} whose files can be rotated by size, see {@link
+ * LogConfig.BaseBuilder#maxFileSize(long)}. When a file grows past the limit, logging continues in
+ * the file named for the next sequence number of the same period.
+ */
+public interface SequencedFormatter extends FileFormatter {
+
+    /**
+     * @param sequence starts from {@code 0}, in which case the result must be the same as {@link
+     * #formatFileName(long)}
+     */
+    String formatFileName(long timeInMillis, int sequence);
+}
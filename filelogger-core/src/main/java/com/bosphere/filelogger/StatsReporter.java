@@ -0,0 +1,52 @@
+package com.bosphere.filelogger;
+
+/**
+ * Hands {@link LogStats} to the listener of the current config periodically, see {@link
+ * LogConfig.BaseBuilder#statsListener(LogStatsListener, long)}.
+ */
+class StatsReporter extends Thread {
+
+    private static StatsReporter sReporter;
+
+    private final LogStatsListener mListener;
+    private final long mInterval;
+    private volatile boolean mStopped;
+
+    private StatsReporter(LogStatsListener listener, long interval) {
+        super(FLConst.TAG + "-Stats");
+        mListener = listener;
+        mInterval = interval;
+        // must not keep the process alive by itself
+        setDaemon(true);
+    }
+
+    /**
+     * Replaces the reporter of the previous config, if any.
+     */
+    static synchronized void update(LogConfig config) {
+        if (sReporter != null) {
+            sReporter.mStopped = true;
+            sReporter.interrupt();
+            sReporter = null;
+        }
+
+        if (config.b.statsListener != null) {
+            sReporter = new StatsReporter(config.b.statsListener, config.b.statsInterval);
+            sReporter.start();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!mStopped) {
+                Thread.sleep(mInterval);
+                if (!mStopped) {
+                    mListener.onStats(FileLogger.getStats());
+                }
+            }
+        } catch (InterruptedException ignored) {
+            // replaced by the reporter of a new config
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.bosphere.filelogger;
+
+/**
+ * A {@link FileFormatter} that is told which process and thread a log came from instead of looking
+ * them up itself, so that lines can be formatted on the file logger thread when {@link
+ * LogConfig.BaseBuilder#deferFormatting(boolean)} is enabled.
+ */
+public interface ThreadAwareFormatter extends FileFormatter {
+    String formatLine(long timeInMillis, int processId, int threadId, String level, String tag,
+            String log);
+
+    /**
+     * Same as {@link #formatLine(long, int, int, String, String, String)} but appends the line to
+     * {@code out}, which the file logger thread reuses across lines.
+     */
+    void formatLine(StringBuilder out, long timeInMillis, int processId, int threadId, String level,
+            String tag, String log);
+}
@@ -0,0 +1,158 @@
+package com.bosphere.filelogger;
+
+import java.util.Arrays;
+
+/**
+ * Gives every logging thread a {@link LogRingBuffer} of its own, so that producers never compete
+ * for a slot. The consumer merges the buffers by log time, taking the earliest log among their
+ * heads. Buffers of threads that have terminated are dropped once drained.
+ */
+class ThreadLocalLogQueue extends LogQueue {
+
+    private final int mCapacity;
+    private final ThreadLocal<ThreadBuffer> mLocal = new ThreadLocal<ThreadBuffer>() {
+        @Override
+        protected ThreadBuffer initialValue() {
+            return register(Thread.currentThread());
+        }
+    };
+    // copied on write, only ever replaced while holding the lock on this
+    private volatile ThreadBuffer[] mBuffers = new ThreadBuffer[0];
+    // consumer only: buffer last polled from, and until which log time it comes first
+    private LogRingBuffer mCurrent;
+    private long mCurrentUntil;
+
+    ThreadLocalLogQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("invalid capacity: " + capacity);
+        }
+        mCapacity = capacity;
+    }
+
+    /**
+     * @return capacity of the buffer of each thread
+     */
+    @Override
+    int capacity() {
+        return mCapacity;
+    }
+
+    @Override
+    int size() {
+        int size = 0;
+        for (ThreadBuffer buffer : mBuffers) {
+            size += buffer.size();
+        }
+        return size;
+    }
+
+    @Override
+    LogEvent claim() {
+        return mLocal.get().claim();
+    }
+
+    @Override
+    void publish(LogEvent event) {
+        event.buffer.publish(event);
+        signal();
+    }
+
+    @Override
+    boolean evict() {
+        return mLocal.get().evict();
+    }
+
+    @Override
+    LogEvent poll() {
+        // keep taking from the same buffer while it is still the earliest
+        LogRingBuffer current = mCurrent;
+        if (current != null) {
+            LogEvent head = current.peek();
+            if (head != null && head.timeMs <= mCurrentUntil) {
+                LogEvent event = current.poll();
+                if (event != null) {
+                    return event;
+                }
+            }
+        }
+
+        for (;;) {
+            ThreadBuffer[] buffers = mBuffers;
+            LogRingBuffer earliest = null;
+            long earliestTime = Long.MAX_VALUE;
+            long nextTime = Long.MAX_VALUE;
+            for (ThreadBuffer buffer : buffers) {
+                LogEvent head = buffer.peek();
+                if (head == null) {
+                    continue;
+                }
+                long time = head.timeMs;
+                if (earliest == null || time < earliestTime) {
+                    nextTime = earliestTime;
+                    earliest = buffer;
+                    earliestTime = time;
+                } else if (time < nextTime) {
+                    nextTime = time;
+                }
+            }
+
+            if (earliest == null) {
+                mCurrent = null;
+                prune(buffers);
+                return null;
+            }
+
+            LogEvent event = earliest.poll();
+            if (event != null) {
+                mCurrent = earliest;
+                mCurrentUntil = nextTime;
+                return event;
+            }
+            // evicted by its producer meanwhile, look again
+        }
+    }
+
+    @Override
+    void release(LogEvent event) {
+        event.buffer.release(event);
+    }
+
+    private synchronized ThreadBuffer register(Thread owner) {
+        ThreadBuffer buffer = new ThreadBuffer(owner, mCapacity);
+        ThreadBuffer[] buffers = Arrays.copyOf(mBuffers, mBuffers.length + 1);
+        buffers[buffers.length - 1] = buffer;
+        mBuffers = buffers;
+        return buffer;
+    }
+
+    private void prune(ThreadBuffer[] buffers) {
+        for (ThreadBuffer buffer : buffers) {
+            // a terminated thread cannot publish any more, so an empty buffer stays empty
+            if (!buffer.owner.isAlive() && buffer.size() == 0) {
+                remove(buffer);
+            }
+        }
+    }
+
+    private synchronized void remove(ThreadBuffer buffer) {
+        ThreadBuffer[] buffers = mBuffers;
+        for (int i = 0; i < buffers.length; i++) {
+            if (buffers[i] == buffer) {
+                ThreadBuffer[] remaining = new ThreadBuffer[buffers.length - 1];
+                System.arraycopy(buffers, 0, remaining, 0, i);
+                System.arraycopy(buffers, i + 1, remaining, i, remaining.length - i);
+                mBuffers = remaining;
+                return;
+            }
+        }
+    }
+
+    private static class ThreadBuffer extends LogRingBuffer {
+        final Thread owner;
+
+        ThreadBuffer(Thread owner, int capacity) {
+            super(capacity);
+            this.owner = owner;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.bosphere.filelogger;
+
+import java.util.Calendar;
+
+/**
+ * Parses timestamps written by {@link TimestampEncoder} back into milliseconds. The year is not
+ * written, so it is taken from a reference time known to be later than the timestamps, such as
+ * when their file was last modified. The start of each hour is computed once, after that only the
+ * minute, second and millisecond digits are added. Not thread-safe.
+ */
+class TimestampDecoder {
+
+    static final int LENGTH = 18;
+
+    private static final long HOUR_MS = 60 * 60 * 1000;
+    // tolerates modification times rounded down or taken from a skewed clock
+    private static final long REFERENCE_SLACK = 24 * HOUR_MS;
+
+    private final Calendar mCalendar = Calendar.getInstance();
+    private long mReference = System.currentTimeMillis();
+    private int mHour = -1;
+    private long mHourStart;
+
+    void setReference(long timeMs) {
+        mReference = timeMs;
+        mHour = -1;
+    }
+
+    /**
+     * @param end index after the last byte that may be read
+     * @return time of the timestamp at {@code offset}, or {@link Long#MIN_VALUE} if there is none
+     */
+    long decode(byte[] bytes, int offset, int end) {
+        if (end - offset < LENGTH || bytes[offset + 2] != '-' || bytes[offset + 5] != ' ' ||
+                bytes[offset + 8] != ':' || bytes[offset + 11] != ':' ||
+                bytes[offset + 14] != '.') {
+            return Long.MIN_VALUE;
+        }
+
+        int month = readDigits(bytes, offset, 2);
+        int day = readDigits(bytes, offset + 3, 2);
+        int hour = readDigits(bytes, offset + 6, 2);
+        int minute = readDigits(bytes, offset + 9, 2);
+        int second = readDigits(bytes, offset + 12, 2);
+        int millis = readDigits(bytes, offset + 15, 3);
+        if (month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 23 ||
+                minute < 0 || minute > 59 || second < 0 || second > 59 || millis < 0) {
+            return Long.MIN_VALUE;
+        }
+
+        int key = (month * 32 + day) * 24 + hour;
+        if (key != mHour) {
+            mHourStart = startOfHour(month, day, hour);
+            mHour = key;
+        }
+        return mHourStart + minute * 60 * 1000 + second * 1000 + millis;
+    }
+
+    private long startOfHour(int month, int day, int hour) {
+        Calendar c = mCalendar;
+        c.setTimeInMillis(mReference);
+        int year = c.get(Calendar.YEAR);
+        c.clear();
+        c.set(year, month - 1, day, hour, 0, 0);
+        long start = c.getTimeInMillis();
+        if (start > mReference + REFERENCE_SLACK) {
+            // logged in the previous year, e.g. in December for a reference in January
+            c.set(Calendar.YEAR, year - 1);
+            start = c.getTimeInMillis();
+        }
+        return start;
+    }
+
+    private static int readDigits(byte[] bytes, int offset, int count) {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            int digit = bytes[offset + i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,56 @@
+package com.bosphere.filelogger;
+
+import java.util.Calendar;
+
+/**
+ * Appends timestamps as "MM-dd HH:mm:ss.SSS" in the default time zone. The "MM-dd HH:mm:" prefix is
+ * computed once per minute, after that only the second and millisecond digits are rewritten.
+ * Not thread-safe.
+ */
+class TimestampEncoder {
+
+    private static final int PREFIX_LENGTH = 12;
+    private static final long MINUTE_MS = 60 * 1000;
+
+    private final Calendar mCalendar = Calendar.getInstance();
+    private final char[] mPrefix = new char[PREFIX_LENGTH];
+    private long mMinuteStart = Long.MIN_VALUE;
+
+    void append(long timeInMillis, StringBuilder out) {
+        if (timeInMillis < mMinuteStart || timeInMillis >= mMinuteStart + MINUTE_MS) {
+            updatePrefix(timeInMillis);
+        }
+
+        out.append(mPrefix, 0, PREFIX_LENGTH);
+
+        int millis = (int) (timeInMillis - mMinuteStart);
+        int seconds = millis / 1000;
+        millis -= seconds * 1000;
+        out.append((char) ('0' + seconds / 10))
+                .append((char) ('0' + seconds % 10))
+                .append('.')
+                .append((char) ('0' + millis / 100))
+                .append((char) ('0' + millis / 10 % 10))
+                .append((char) ('0' + millis % 10));
+    }
+
+    private void updatePrefix(long timeInMillis) {
+        Calendar c = mCalendar;
+        c.setTimeInMillis(timeInMillis);
+        int offset = writeTwoDigits(c.get(Calendar.MONTH) + 1, mPrefix, 0);
+        mPrefix[offset++] = '-';
+        offset = writeTwoDigits(c.get(Calendar.DAY_OF_MONTH), mPrefix, offset);
+        mPrefix[offset++] = ' ';
+        offset = writeTwoDigits(c.get(Calendar.HOUR_OF_DAY), mPrefix, offset);
+        mPrefix[offset++] = ':';
+        offset = writeTwoDigits(c.get(Calendar.MINUTE), mPrefix, offset);
+        mPrefix[offset] = ':';
+        mMinuteStart = timeInMillis - c.get(Calendar.SECOND) * 1000 - c.get(Calendar.MILLISECOND);
+    }
+
+    private static int writeTwoDigits(int value, char[] buf, int offset) {
+        buf[offset] = (char) ('0' + value / 10);
+        buf[offset + 1] = (char) ('0' + value % 10);
+        return offset + 2;
+    }
+}
@@ -0,0 +1,399 @@
+package com.bosphere.filelogger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Encodes logs with {@link BinaryLogEncoder} and reads them back with {@link BinaryLogDecoder}.
+ */
+public class BinaryLogEncoderTest {
+
+    private static final long TIME = 1792886400000L;
+    private static final int PROCESS_ID = 1234;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private final MemoryLogWriter mWriter = new MemoryLogWriter();
+    private final BinaryLogEncoder mEncoder = new BinaryLogEncoder();
+
+    @Test
+    public void roundTripsEveryRecordType() throws Exception {
+        mEncoder.start(mWriter, TIME, PROCESS_ID);
+        mEncoder.write(mWriter, TIME, FLConst.Level.V, 1, "Tag", "plain message", null);
+        mEncoder.write(mWriter, TIME + 5, FLConst.Level.D, 2, "Tag", "count: %d", args(7));
+        mEncoder.write(mWriter, TIME + 5, FLConst.Level.I, 1, "Other", "count: %d", args(8));
+        mEncoder.write(mWriter, TIME + 9, FLConst.Level.W, 3, null, "no tag", new Object[0]);
+        mEncoder.write(mWriter, TIME + 9, FLConst.Level.E, 2, "Tag", null, null);
+
+        List<Log> logs = decode();
+        assertEquals(Arrays.asList(
+                new Log(TIME, 1, FLConst.Level.V, "Tag", "plain message"),
+                new Log(TIME + 5, 2, FLConst.Level.D, "Tag", "count: 7"),
+                new Log(TIME + 5, 1, FLConst.Level.I, "Other", "count: 8"),
+                new Log(TIME + 9, 3, FLConst.Level.W, "", "no tag"),
+                new Log(TIME + 9, 2, FLConst.Level.E, "Tag", "")), logs);
+    }
+
+    @Test
+    public void roundTripsEveryArgumentKind() throws Exception {
+        Object[][] cases = {
+                args((Object) null),
+                args(false, true),
+                args((byte) 0, (byte) 1, (byte) -1, Byte.MIN_VALUE, Byte.MAX_VALUE),
+                args((short) -1, Short.MIN_VALUE, Short.MAX_VALUE),
+                args(0, -1, 63, -64, 64, -65, Integer.MIN_VALUE, Integer.MAX_VALUE),
+                args(0L, -1L, Long.MIN_VALUE, Long.MAX_VALUE),
+                args(0f, -1.5f, Float.MIN_VALUE, Float.NaN, Float.NEGATIVE_INFINITY),
+                args(-0d, Math.PI, Double.MAX_VALUE, Double.NaN, Double.POSITIVE_INFINITY),
+                args('a', '\u00e9', '\uffff'),
+                args("", "text", "\u00e9\u20ac\ud83d\ude00"),
+        };
+
+        mEncoder.start(mWriter, TIME, PROCESS_ID);
+        List<String> expected = new ArrayList<>();
+        for (Object[] args : cases) {
+            // the same template for all kinds, and conversions that tell the kinds apart
+            String fmt = "%s %s %s %s %s %s %s %s".substring(0, args.length * 3 - 1);
+            mEncoder.write(mWriter, TIME, FLConst.Level.D, 1, "Tag", fmt, args);
+            expected.add(FLUtil.format(fmt, args));
+            if (args[0] instanceof Number && !(args[0] instanceof Float) &&
+                    !(args[0] instanceof Double)) {
+                fmt = fmt.replace('s', 'x');
+                mEncoder.write(mWriter, TIME, FLConst.Level.D, 1, "Tag", fmt, args);
+                expected.add(FLUtil.format(fmt, args));
+            }
+        }
+
+        List<String> messages = new ArrayList<>();
+        for (Log log : decode()) {
+            messages.add(log.message);
+        }
+        assertEquals(expected, messages);
+    }
+
+    @Test
+    public void roundTripsTimeGoingBack() throws Exception {
+        long[] times = {TIME, TIME - 1, TIME + 100000, TIME - 100000, 0, TIME, Long.MAX_VALUE / 2};
+        mEncoder.start(mWriter, TIME, PROCESS_ID);
+        for (long time : times) {
+            mEncoder.write(mWriter, time, FLConst.Level.I, 1, "Tag", "at %d", args(time));
+        }
+
+        List<Log> logs = decode();
+        assertEquals(times.length, logs.size());
+        for (int i = 0; i < times.length; i++) {
+            assertEquals(times[i], logs.get(i).time);
+            assertEquals("at " + times[i], logs.get(i).message);
+        }
+    }
+
+    @Test
+    public void formatsOtherArgumentsWhileLogging() throws Exception {
+        StringBuilder sb = new StringBuilder("mutable");
+        mEncoder.start(mWriter, TIME, PROCESS_ID);
+        mEncoder.write(mWriter, TIME, FLConst.Level.I, 1, "Tag", "%s and %d", args(sb, 1));
+        mEncoder.write(mWriter, TIME, FLConst.Level.I, 1, "Tag", "%s and %d", args("text", 2));
+        mEncoder.write(mWriter, TIME, FLConst.Level.I, 1, "Tag", "%s and %d", args(sb, 3));
+        // a bad format string must not lose the log
+        mEncoder.write(mWriter, TIME, FLConst.Level.I, 1, "Tag", "%d", args(sb));
+        sb.append(" changed");
+
+        List<String> messages = new ArrayList<>();
+        for (Log log : decode()) {
+            messages.add(log.message);
+        }
+        assertEquals(Arrays.asList("mutable and 1", "text and 2", "mutable and 3",
+                "%d [mutable]"), messages);
+    }
+
+    @Test
+    public void internsTemplatesUpToLimit() throws Exception {
+        mEncoder.start(mWriter, TIME, PROCESS_ID);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < BinaryLogEncoder.MAX_TEMPLATES + 10; i++) {
+            String fmt = "template " + i + ": %d";
+            mEncoder.write(mWriter, TIME, FLConst.Level.D, 1, "Tag", fmt, args(i));
+            expected.add("template " + i + ": " + i);
+        }
+
+        // interned: only the template index and the argument are written again
+        long interned = sizeOf("template 0: %d", 5);
+        assertEquals(sizeOf("template 0: %d", 6), interned);
+        assertTrue(interned < "template 0: 5".length());
+        expected.add("template 0: 5");
+        expected.add("template 0: 6");
+
+        // past the limit: written out as formatted each time
+        String fmt = "template " + BinaryLogEncoder.MAX_TEMPLATES + ": %d";
+        assertEquals(sizeOf(fmt, 7), sizeOf(fmt, 8));
+        assertTrue(sizeOf(fmt, 9) > fmt.length());
+        for (int i = 7; i <= 9; i++) {
+            expected.add("template " + BinaryLogEncoder.MAX_TEMPLATES + ": " + i);
+        }
+
+        List<String> messages = new ArrayList<>();
+        for (Log log : decode()) {
+            messages.add(log.message);
+        }
+        assertEquals(expected, messages);
+    }
+
+    @Test
+    public void restartsDictionariesOnStart() throws Exception {
+        mEncoder.start(mWriter, TIME, PROCESS_ID);
+        mEncoder.write(mWriter, TIME, FLConst.Level.D, 7, "First", "run %d", args(1));
+        // appended to after a restart
+        BinaryLogEncoder encoder = new BinaryLogEncoder();
+        encoder.start(mWriter, TIME + 1000, PROCESS_ID + 1);
+        encoder.write(mWriter, TIME + 1000, FLConst.Level.I, 8, "Second", "again %d", args(2));
+        encoder.write(mWriter, TIME + 1001, FLConst.Level.I, 7, "First", "run %d", args(3));
+
+        BinaryLogDecoder.RecordReader reader = reader(mWriter.toByteArray());
+        assertTrue(reader.next());
+        assertEquals(PROCESS_ID, reader.processId);
+        assertTrue(reader.next());
+        assertEquals(PROCESS_ID + 1, reader.processId);
+        assertEquals("again 2", reader.log);
+        assertTrue(reader.next());
+        assertEquals(7, reader.threadId);
+        assertEquals("First", reader.tag);
+        assertEquals("run 3", reader.log);
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void ignoresRecordCutShort() throws Exception {
+        mEncoder.start(mWriter, TIME, PROCESS_ID);
+        mEncoder.write(mWriter, TIME, FLConst.Level.D, 1, "Tag", "first %s", args("a"));
+        int firstEnd = (int) mWriter.length();
+        mEncoder.write(mWriter, TIME + 1, FLConst.Level.D, 1, "Tag", "second %s", args("b"));
+        byte[] bytes = mWriter.toByteArray();
+
+        for (int length = 0; length < bytes.length; length++) {
+            BinaryLogDecoder.RecordReader reader = reader(Arrays.copyOf(bytes, length));
+            int count = 0;
+            while (reader.next()) {
+                count++;
+            }
+            assertEquals(String.valueOf(length), length < firstEnd ? 0 : 1, count);
+        }
+    }
+
+    @Test
+    public void resumesAfterRecordCutShort() throws Exception {
+        File file = mFolder.newFile();
+        LogWriter writer = new ChannelLogWriter(file, 64);
+        mEncoder.start(writer, TIME, PROCESS_ID);
+        long[] ends = new long[5];
+        for (int i = 0; i < ends.length; i++) {
+            mEncoder.write(writer, TIME + i, FLConst.Level.I, 1, "Tag", "msg %d %s",
+                    args(i, "abc"));
+            ends[i] = writer.length();
+        }
+        writer.close();
+        byte[] bytes = Files.readAllBytes(file.toPath());
+
+        // as left behind by a run that was killed, then appended to by the next one
+        for (int length = 0; length <= bytes.length; length++) {
+            Files.write(file.toPath(), Arrays.copyOf(bytes, length));
+            BinaryLogDecoder.truncateIncomplete(file);
+            writer = new ChannelLogWriter(file, 64);
+            BinaryLogEncoder encoder = new BinaryLogEncoder();
+            encoder.start(writer, TIME + 1000, PROCESS_ID + 1);
+            for (int i = 0; i < 3; i++) {
+                encoder.write(writer, TIME + 1000 + i, FLConst.Level.W, 2, "Resumed", "run %d",
+                        args(i));
+            }
+            writer.close();
+
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < ends.length && ends[i] <= length; i++) {
+                expected.add("I/Tag: msg " + i + " abc");
+            }
+            for (int i = 0; i < 3; i++) {
+                expected.add("W/Resumed: run " + i);
+            }
+            assertEquals(String.valueOf(length), expected, readLogs(file));
+        }
+    }
+
+    @Test
+    public void keepsFileEndingWithWholeRecord() throws Exception {
+        File file = mFolder.newFile();
+        LogWriter writer = new ChannelLogWriter(file, 64);
+        mEncoder.start(writer, TIME, PROCESS_ID);
+        mEncoder.write(writer, TIME, FLConst.Level.I, 1, "Tag", "logged", null);
+        // defined, though no log refers to it yet
+        writer.write(BinaryLogEncoder.RECORD_TAG);
+        writer.write(0);
+        writer.close();
+        long length = file.length();
+
+        BinaryLogDecoder.truncateIncomplete(file);
+        assertEquals(length, file.length());
+
+        // not a binary log file
+        Files.write(file.toPath(), "text".getBytes("UTF-8"));
+        BinaryLogDecoder.truncateIncomplete(file);
+        assertEquals(4, file.length());
+    }
+
+    @Test
+    public void decodesIntoTextLines() throws Exception {
+        mEncoder.start(mWriter, TIME, PROCESS_ID);
+        mEncoder.write(mWriter, TIME, FLConst.Level.W, 42, "Tag", "value: %d", args(1));
+        mEncoder.write(mWriter, TIME + 1, FLConst.Level.E, 42, "Tag", "done", null);
+
+        LogConfig.DefaultFormatter formatter = new LogConfig.DefaultFormatter();
+        StringWriter out = new StringWriter();
+        new BinaryLogDecoder(formatter).decode(new ByteArrayInputStream(mWriter.toByteArray()),
+                out);
+        assertEquals(formatter.formatLine(TIME, PROCESS_ID, 42, "W", "Tag", "value: 1") + "\n" +
+                formatter.formatLine(TIME + 1, PROCESS_ID, 42, "E", "Tag", "done") + "\n",
+                out.toString());
+    }
+
+    /**
+     * @return how many bytes the log takes up in the file
+     */
+    private long sizeOf(String fmt, int arg) throws IOException {
+        long start = mWriter.length();
+        mEncoder.write(mWriter, TIME, FLConst.Level.D, 1, "Tag", fmt, args(arg));
+        return mWriter.length() - start;
+    }
+
+    private List<Log> decode() throws IOException {
+        BinaryLogDecoder.RecordReader reader = reader(mWriter.toByteArray());
+        List<Log> logs = new ArrayList<>();
+        while (reader.next()) {
+            assertEquals(PROCESS_ID, reader.processId);
+            logs.add(new Log(reader.time, reader.threadId, reader.level, reader.tag, reader.log));
+        }
+        return logs;
+    }
+
+    private static List<String> readLogs(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            BinaryLogDecoder.RecordReader reader = new BinaryLogDecoder.RecordReader(in);
+            List<String> logs = new ArrayList<>();
+            while (reader.next()) {
+                String level = FLConst.LevelName.get(reader.level);
+                logs.add(level + "/" + reader.tag + ": " + reader.log);
+            }
+            return logs;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static BinaryLogDecoder.RecordReader reader(byte[] bytes) {
+        return new BinaryLogDecoder.RecordReader(new ByteArrayInputStream(bytes));
+    }
+
+    private static Object[] args(Object... args) {
+        return args;
+    }
+
+    private static class Log {
+        final long time;
+        final int threadId;
+        final int level;
+        final String tag;
+        final String message;
+
+        Log(long time, int threadId, int level, String tag, String message) {
+            this.time = time;
+            this.threadId = threadId;
+            this.level = level;
+            this.tag = tag;
+            this.message = message;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Log)) {
+                return false;
+            }
+            Log log = (Log) o;
+            return time == log.time && threadId == log.threadId && level == log.level &&
+                    tag.equals(log.tag) && message.equals(log.message);
+        }
+
+        @Override
+        public int hashCode() {
+            return message.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return time + " " + threadId + " " + level + "/" + tag + ": " + message;
+        }
+    }
+
+    /**
+     * Keeps what is written in memory, through a small buffer so that it is drained often.
+     */
+    private static class MemoryLogWriter extends LogWriter {
+
+        private final ByteArrayOutputStream mOut = new ByteArrayOutputStream();
+
+        MemoryLogWriter() {
+            mBuffer = ByteBuffer.allocate(16);
+        }
+
+        byte[] toByteArray() {
+            flush();
+            return mOut.toByteArray();
+        }
+
+        @Override
+        void makeRoom() {
+            flush();
+        }
+
+        @Override
+        long length() {
+            return mOut.size() + mBuffer.position();
+        }
+
+        @Override
+        int bufferedBytes() {
+            return mBuffer.position();
+        }
+
+        @Override
+        void flush() {
+            mOut.write(mBuffer.array(), 0, mBuffer.position());
+            mBuffer.clear();
+        }
+
+        @Override
+        void sync() {
+        }
+
+        @Override
+        void close() {
+            flush();
+        }
+    }
+}
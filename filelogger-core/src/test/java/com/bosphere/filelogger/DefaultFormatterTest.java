@@ -0,0 +1,78 @@
+package com.bosphere.filelogger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+public class DefaultFormatterTest {
+
+    private static final long MINUTE_MS = 60 * 1000;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+    // 2026-10-25 00:00 UTC, clocks go back at 01:00 UTC in Berlin
+    private static final long DAY_START = 1792886400000L;
+
+    private TimeZone mDefaultZone;
+
+    @Before
+    public void setUp() {
+        mDefaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(mDefaultZone);
+    }
+
+    @Test
+    public void namesFilesByHour() {
+        LogConfig.DefaultFormatter formatter = new LogConfig.DefaultFormatter();
+        for (long t = DAY_START; t < DAY_START + 4 * HOUR_MS; t += MINUTE_MS) {
+            assertName(formatter, t);
+            assertName(formatter, t - 1);
+        }
+    }
+
+    @Test
+    public void goesBackInTime() {
+        LogConfig.DefaultFormatter formatter = new LogConfig.DefaultFormatter();
+        assertName(formatter, DAY_START + 2 * HOUR_MS);
+        assertName(formatter, DAY_START + HOUR_MS - 1);
+        assertName(formatter, DAY_START + 2 * HOUR_MS - 1);
+        assertName(formatter, DAY_START);
+    }
+
+    @Test
+    public void numbersFilesOfSameHour() {
+        LogConfig.DefaultFormatter formatter = new LogConfig.DefaultFormatter();
+        String prefix = hourOf(DAY_START);
+        assertEquals(prefix + "_00.txt", formatter.formatFileName(DAY_START, 0));
+        assertEquals(prefix + "_03.txt", formatter.formatFileName(DAY_START + 1, 3));
+        assertEquals(prefix + "_12.txt", formatter.formatFileName(DAY_START + HOUR_MS - 1, 12));
+        assertEquals(hourOf(DAY_START + HOUR_MS) + "_01.txt",
+                formatter.formatFileName(DAY_START + HOUR_MS, 1));
+    }
+
+    @Test
+    public void formatsLines() {
+        LogConfig.DefaultFormatter formatter = new LogConfig.DefaultFormatter();
+        String line = formatter.formatLine(DAY_START, 12, 34, "W", "Tag", "message");
+        assertEquals("10-25 02:00:00.000 12-34 W/Tag: message", line);
+    }
+
+    private static void assertName(LogConfig.DefaultFormatter formatter, long timeMs) {
+        assertEquals(String.valueOf(timeMs), hourOf(timeMs) + "_00.txt",
+                formatter.formatFileName(timeMs));
+    }
+
+    private static String hourOf(long timeMs) {
+        return new SimpleDateFormat("MM_dd_HH", Locale.ENGLISH).format(new Date(timeMs));
+    }
+}
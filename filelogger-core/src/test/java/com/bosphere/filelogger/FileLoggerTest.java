@@ -0,0 +1,117 @@
+package com.bosphere.filelogger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the logger end to end on a plain JVM, without any Android API.
+ */
+public class FileLoggerTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private final RecordingLogger mLogger = new RecordingLogger();
+    private File mDir;
+
+    @Before
+    public void setUp() throws Exception {
+        mDir = new File(mFolder.getRoot(), "logs");
+        FileLogger.setEnabled(true);
+    }
+
+    @Test
+    public void logsToLoggerAndFile() throws Exception {
+        FileLogger.init(new LogConfig.Builder()
+                .logger(mLogger)
+                .defaultTag("Default")
+                .dir(mDir)
+                .logToFile(true)
+                .build());
+
+        FileLogger.d("Tag", "count: %d", 42);
+        FileLogger.w("plain message");
+        FileLogger.e("Tag", new IllegalStateException("boom"), "failed");
+
+        assertEquals(Arrays.asList("D/Tag: count: 42", "W/Default: plain message"),
+                mLogger.logs.subList(0, 2));
+        assertTrue(mLogger.logs.get(2).startsWith("E/Tag: failed\n" +
+                IllegalStateException.class.getName() + ": boom"));
+
+        List<String> lines = readLines();
+        assertTrue(lines.get(0), lines.get(0).endsWith(" D/Tag: count: 42"));
+        assertTrue(lines.get(1), lines.get(1).endsWith(" W/Default: plain message"));
+        assertTrue(lines.get(2), lines.get(2).endsWith(" E/Tag: failed"));
+    }
+
+    @Test
+    public void skipsLogsBelowMinLevel() throws Exception {
+        FileLogger.init(new LogConfig.Builder()
+                .logger(mLogger)
+                .minLevel(FLConst.Level.I)
+                .dir(mDir)
+                .logToFile(true)
+                .build());
+
+        assertFalse(FileLogger.isLoggable(FLConst.Level.D));
+        assertTrue(FileLogger.isLoggable(FLConst.Level.I));
+        FileLogger.d("Tag", "hidden");
+        FileLogger.i("Tag", "shown");
+
+        assertEquals(Arrays.asList("I/Tag: shown"), mLogger.logs);
+        List<String> lines = readLines();
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0), lines.get(0).endsWith(" I/Tag: shown"));
+    }
+
+    @Test
+    public void formatsOnFileLoggerThread() throws Exception {
+        FileLogger.init(new LogConfig.Builder()
+                .logger(null)
+                .dir(mDir)
+                .logToFile(true)
+                .deferFormatting(true)
+                .build());
+
+        FileLogger.i("Tag", "%s and %d", "text", 7);
+        // a bad format string must not lose the log
+        FileLogger.i("Tag", "%d", "not a number");
+
+        List<String> lines = readLines();
+        assertTrue(lines.get(0), lines.get(0).endsWith(" I/Tag: text and 7"));
+        assertTrue(lines.get(1), lines.get(1).endsWith(" I/Tag: %d [not a number]"));
+    }
+
+    /**
+     * @return lines of the log file once the file logger thread has written queued logs, leaving
+     * out those of the logger itself
+     */
+    private List<String> readLines() throws IOException, InterruptedException {
+        assertNotNull(FileLoggerService.snapshot(mDir, 5000));
+        File[] files = mDir.listFiles();
+        assertNotNull(files);
+        assertEquals(1, files.length);
+        List<String> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(files[0].toPath(), Charset.forName("UTF-8"))) {
+            if (!line.contains(" D/" + FLConst.TAG + ": ")) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
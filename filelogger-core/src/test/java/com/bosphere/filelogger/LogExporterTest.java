@@ -0,0 +1,211 @@
+package com.bosphere.filelogger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class LogExporterTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final long HOUR = 60 * 60 * 1000;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mDir;
+
+    @Before
+    public void setUp() {
+        mDir = new File(mFolder.getRoot(), "logs");
+    }
+
+    @Test
+    public void exportsFilesOfRunningLogger() throws Exception {
+        LogConfig config = new LogConfig.Builder()
+                .logger(null)
+                .dir(mDir)
+                .logToFile(true)
+                .indexInterval(256)
+                .compressRotatedFiles(true)
+                .build();
+        long start = System.currentTimeMillis() - 2 * HOUR;
+        for (long timeMs = start; timeMs < start + 2 * HOUR; timeMs += 10 * 1000) {
+            FileLoggerService.instance().logFile(config, timeMs, FLConst.Level.I,
+                    config.b.formatter.formatLine(timeMs, "I", "Tag", "logged at " + timeMs));
+        }
+        assertNotNull(FileLoggerService.snapshot(mDir, 5000));
+        awaitCompressed();
+
+        Map<String, byte[]> entries = export(new LogExporter(mDir));
+        List<String> expected = new ArrayList<>();
+        for (File file : files()) {
+            if (!LogOffsetIndex.isIndex(file.getName())) {
+                expected.add(file.getName());
+            }
+        }
+        // listed by the logger, where a compressed file keeps the place of its original
+        List<String> names = new ArrayList<>(entries.keySet());
+        Collections.sort(expected);
+        Collections.sort(names);
+        assertEquals(expected, names);
+        assertContents(entries);
+    }
+
+    @Test
+    public void exportsFilesAsListedWithoutLogger() throws Exception {
+        assertTrue(mDir.mkdirs());
+        createFile("01.txt", 1000, 3);
+        createFile("02.txt.gz", 512, 2);
+        createFile("02.txt.gz" + LogOffsetIndex.SUFFIX, 40, 2);
+        createFile("03.txt", 0, 1);
+        assertTrue(new File(mDir, "sub").mkdir());
+
+        Map<String, byte[]> entries = export(new LogExporter(mDir));
+        assertEquals(Arrays.asList("01.txt", "02.txt.gz", "03.txt"),
+                new ArrayList<>(entries.keySet()));
+        assertEquals(1000, entries.get("01.txt").length);
+        assertEquals(512, entries.get("02.txt.gz").length);
+        assertEquals(0, entries.get("03.txt").length);
+        assertContents(entries);
+    }
+
+    @Test
+    public void leavesOutFilesBeforeFrom() throws Exception {
+        assertTrue(mDir.mkdirs());
+        createFile("01.txt", 100, 3);
+        createFile("02.txt", 100, 1);
+
+        long from = System.currentTimeMillis() - 2 * HOUR;
+        Map<String, byte[]> entries = export(new LogExporter(mDir).from(from));
+        assertEquals(Arrays.asList("02.txt"), new ArrayList<>(entries.keySet()));
+        assertContents(entries);
+    }
+
+    @Test
+    public void exportsEmptyArchiveOfMissingDirectory() throws Exception {
+        assertEquals(0, export(new LogExporter(mDir)).size());
+    }
+
+    private void assertContents(Map<String, byte[]> entries) throws IOException {
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            File file = new File(mDir, entry.getKey());
+            assertArrayEquals(entry.getKey(), Files.readAllBytes(file.toPath()), entry.getValue());
+        }
+    }
+
+    /**
+     * @return contents of the files in the archive by name, in the order of the archive
+     */
+    private static Map<String, byte[]> export(LogExporter exporter) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = exporter.exportTo(out);
+        byte[] tar = out.toByteArray();
+        assertEquals(tar.length, written);
+        assertEquals(0, tar.length % 512);
+
+        LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>();
+        int pos = 0;
+        while (!isZero(tar, pos)) {
+            String name = new String(tar, pos, indexOfNul(tar, pos, 100) - pos, UTF_8);
+            int size = (int) readOctal(tar, pos + 124, 12);
+            assertEquals(name, readOctal(tar, pos + 148, 8), checksum(tar, pos));
+            assertEquals("ustar\u000000", new String(tar, pos + 257, 8, UTF_8));
+            pos += 512;
+            entries.put(name, Arrays.copyOfRange(tar, pos, pos + size));
+            pos += (size + 511) / 512 * 512;
+        }
+        // end of archive
+        assertEquals(tar.length, pos + 1024);
+        assertTrue(isZero(tar, pos + 512));
+        return entries;
+    }
+
+    private static boolean isZero(byte[] tar, int pos) {
+        for (int i = pos; i < pos + 512; i++) {
+            if (tar[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOfNul(byte[] tar, int pos, int length) {
+        for (int i = pos; i < pos + length; i++) {
+            if (tar[i] == 0) {
+                return i;
+            }
+        }
+        return pos + length;
+    }
+
+    private static long readOctal(byte[] tar, int pos, int length) {
+        long value = 0;
+        for (int i = pos; i < indexOfNul(tar, pos, length); i++) {
+            value = value * 8 + tar[i] - '0';
+        }
+        return value;
+    }
+
+    private static long checksum(byte[] tar, int pos) {
+        long checksum = 0;
+        for (int i = pos; i < pos + 512; i++) {
+            checksum += i >= pos + 148 && i < pos + 156 ? ' ' : tar[i] & 0xff;
+        }
+        return checksum;
+    }
+
+    private void awaitCompressed() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline && !hasCompressedFile()) {
+            Thread.sleep(10);
+        }
+        assertTrue(hasCompressedFile());
+    }
+
+    private boolean hasCompressedFile() {
+        for (File file : files()) {
+            String name = file.getName();
+            if (LogFileCompressor.isCompressed(name)) {
+                // the original is deleted once done
+                return !new File(mDir, name.substring(0, name.length() -
+                        LogFileCompressor.SUFFIX.length())).exists();
+            }
+        }
+        return false;
+    }
+
+    private List<File> files() {
+        File[] files = mDir.listFiles();
+        assertNotNull(files);
+        Arrays.sort(files, LogFileIndex.FILE_COMPARATOR);
+        return Arrays.asList(files);
+    }
+
+    private void createFile(String name, int size, long ageHours) throws IOException {
+        File file = new File(mDir, name);
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (name.hashCode() + i);
+        }
+        Files.write(file.toPath(), content);
+        assertTrue(file.setLastModified(System.currentTimeMillis() - ageHours * HOUR));
+    }
+}
@@ -0,0 +1,139 @@
+package com.bosphere.filelogger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LogFileIndexTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mDir;
+
+    @Before
+    public void setUp() throws Exception {
+        mDir = mFolder.getRoot();
+        // listed out of order, modification times make 01 the oldest
+        createFile("03.txt", 300, 3);
+        createFile("01.txt", 100, 1);
+        createFile("02.txt", 200, 2);
+        createFile("01.txt" + LogOffsetIndex.SUFFIX, 50, 1);
+    }
+
+    @Test
+    public void listsFilesOldestFirstWithoutOffsetIndexes() {
+        LogFileIndex index = new LogFileIndex(mDir);
+        assertEquals(Arrays.asList("01.txt", "02.txt", "03.txt"), names(index));
+        assertEquals(3, index.count());
+        assertEquals(600, index.totalSize());
+        assertEquals(200, index.sizeOf("02.txt"));
+        assertEquals(-1, index.sizeOf("04.txt"));
+    }
+
+    @Test
+    public void tracksUpdatesAsNewestFiles() {
+        LogFileIndex index = new LogFileIndex(mDir);
+        index.update("04.txt", 10);
+        index.update("04.txt", 40);
+        index.update("02.txt", 250);
+        assertEquals(Arrays.asList("01.txt", "02.txt", "03.txt", "04.txt"), names(index));
+        assertEquals(690, index.totalSize());
+    }
+
+    @Test
+    public void trimsOldestToCount() {
+        LogFileIndex index = new LogFileIndex(mDir);
+        assertEquals(0, index.trimToCount(3, null));
+        assertEquals(1, index.trimToCount(2, null));
+
+        assertEquals(Arrays.asList("02.txt", "03.txt"), names(index));
+        assertEquals(500, index.totalSize());
+        assertFalse(new File(mDir, "01.txt").exists());
+        // deleted along with its log file
+        assertFalse(new File(mDir, "01.txt" + LogOffsetIndex.SUFFIX).exists());
+        assertTrue(new File(mDir, "02.txt").exists());
+    }
+
+    @Test
+    public void trimsToCountSparingFileInUse() {
+        LogFileIndex index = new LogFileIndex(mDir);
+        assertEquals(2, index.trimToCount(1, "01.txt"));
+
+        assertEquals(Arrays.asList("01.txt"), names(index));
+        assertEquals(100, index.totalSize());
+        assertTrue(new File(mDir, "01.txt").exists());
+        assertFalse(new File(mDir, "02.txt").exists());
+        assertFalse(new File(mDir, "03.txt").exists());
+    }
+
+    @Test
+    public void trimsOldestToSize() {
+        LogFileIndex index = new LogFileIndex(mDir);
+        assertEquals(0, index.trimToSize(600, null));
+        assertEquals(1, index.trimToSize(599, null));
+        assertEquals(Arrays.asList("02.txt", "03.txt"), names(index));
+        assertEquals(1, index.trimToSize(300, null));
+
+        assertEquals(Arrays.asList("03.txt"), names(index));
+        assertEquals(300, index.totalSize());
+        assertFalse(new File(mDir, "02.txt").exists());
+    }
+
+    @Test
+    public void trimsToSizeSparingFileInUse() {
+        LogFileIndex index = new LogFileIndex(mDir);
+        index.update("04.txt", 500);
+        assertEquals(3, index.trimToSize(100, "04.txt"));
+
+        assertEquals(Arrays.asList("04.txt"), names(index));
+        assertEquals(500, index.totalSize());
+    }
+
+    @Test
+    public void forgetsFilesDeletedByOthers() {
+        LogFileIndex index = new LogFileIndex(mDir);
+        assertTrue(new File(mDir, "01.txt").delete());
+
+        assertEquals(0, index.trimToCount(2, null));
+        assertEquals(Arrays.asList("02.txt", "03.txt"), names(index));
+        assertEquals(500, index.totalSize());
+    }
+
+    @Test
+    public void replacesFileByCompressedVersionInPlace() {
+        LogFileIndex index = new LogFileIndex(mDir);
+        File compressed = new File(mDir, "01.txt" + LogFileCompressor.SUFFIX);
+        assertTrue(index.replace("01.txt", compressed, 30));
+        assertFalse(index.replace("05.txt", new File(mDir, "05.txt.gz"), 10));
+
+        assertEquals(Arrays.asList("01.txt.gz", "02.txt", "03.txt"), names(index));
+        assertEquals(530, index.totalSize());
+    }
+
+    private void createFile(String name, int size, long age) throws IOException {
+        File file = new File(mDir, name);
+        Files.write(file.toPath(), new byte[size]);
+        assertTrue(file.setLastModified(System.currentTimeMillis() - 60 * 1000 * (10 - age)));
+    }
+
+    private static List<String> names(LogFileIndex index) {
+        List<String> names = new ArrayList<>();
+        for (String name : index.names()) {
+            names.add(name);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,181 @@
+package com.bosphere.filelogger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Logs three hours worth of logs into hourly files, the older two of which are compressed, and
+ * reads them back.
+ */
+public class LogQueryTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+    private static final long INTERVAL = 5000;
+    private static final String[] TAGS = {"A", "B"};
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mDir;
+    private long mStart;
+    private final List<LogEntry> mLogs = new ArrayList<>();
+    private final List<File> mFiles = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        mDir = new File(mFolder.getRoot(), "logs");
+        Calendar c = Calendar.getInstance();
+        c.set(Calendar.MINUTE, 0);
+        c.set(Calendar.SECOND, 0);
+        c.set(Calendar.MILLISECOND, 0);
+        mStart = c.getTimeInMillis() - 3 * HOUR;
+
+        LogConfig config = new LogConfig.Builder()
+                .logger(null)
+                .dir(mDir)
+                .logToFile(true)
+                .indexInterval(512)
+                .compressRotatedFiles(true)
+                .build();
+        FileFormatter formatter = config.b.formatter;
+        Platform platform = Platform.get();
+        for (long timeMs = mStart; timeMs < mStart + 3 * HOUR; timeMs += INTERVAL) {
+            int i = mLogs.size();
+            // warnings and errors are rare, so that most of the index can be skipped for them
+            int level = i % 50 == 0 ? FLConst.Level.E : i % 10 == 0 ? FLConst.Level.W : i % 3;
+            String tag = TAGS[i % TAGS.length];
+            String message = i % 7 == 0 ? "message " + i + "\n    continued" : "message " + i;
+            mLogs.add(new LogEntry(timeMs, platform.myPid(), platform.myTid(), level, tag,
+                    message));
+            FileLoggerService.instance().logFile(config, timeMs, level,
+                    formatter.formatLine(timeMs, FLConst.LevelName.get(level), tag, message));
+        }
+        assertNotNull(FileLoggerService.snapshot(mDir, 5000));
+
+        for (int hour = 0; hour < 3; hour++) {
+            String name = formatter.formatFileName(mStart + hour * HOUR);
+            mFiles.add(new File(mDir, hour < 2 ? name + LogFileCompressor.SUFFIX : name));
+        }
+        awaitCompressed();
+    }
+
+    @Test
+    public void readsAllLogs() throws Exception {
+        assertQueries();
+    }
+
+    @Test
+    public void readsFilesWithoutIndex() throws Exception {
+        assertTrue(LogOffsetIndex.of(mFiles.get(1)).delete());
+        assertTrue(LogOffsetIndex.of(mFiles.get(2)).delete());
+        assertQueries();
+    }
+
+    @Test
+    public void readsFilesWithIndexCutShortWithinEntry() throws Exception {
+        truncate(LogOffsetIndex.of(mFiles.get(1)), 10);
+        truncate(LogOffsetIndex.of(mFiles.get(2)), 10);
+        assertQueries();
+    }
+
+    @Test
+    public void readsFilesWithIndexCutShortBetweenEntries() throws Exception {
+        truncate(LogOffsetIndex.of(mFiles.get(1)), 36 * 4);
+        truncate(LogOffsetIndex.of(mFiles.get(2)), 36 * 4);
+        assertQueries();
+    }
+
+    private void assertQueries() throws IOException {
+        assertQuery(new LogQuery(mDir));
+        // starting and ending within a compressed and a plain file
+        assertQuery(new LogQuery(mDir)
+                .from(mStart + HOUR / 2 + 1)
+                .to(mStart + 2 * HOUR + HOUR / 3));
+        assertQuery(new LogQuery(mDir).to(mStart + HOUR));
+        assertQuery(new LogQuery(mDir).from(mStart + 2 * HOUR));
+        assertQuery(new LogQuery(mDir).minLevel(FLConst.Level.W));
+        assertQuery(new LogQuery(mDir).minLevel(FLConst.Level.E));
+        assertQuery(new LogQuery(mDir).tag("A").minLevel(FLConst.Level.I));
+        assertQuery(new LogQuery(mDir)
+                .from(mStart + HOUR + 1)
+                .to(mStart + 2 * HOUR + 1)
+                .tag("B")
+                .minLevel(FLConst.Level.W));
+        assertQuery(new LogQuery(mDir).from(mStart + 3 * HOUR));
+    }
+
+    private void assertQuery(LogQuery query) throws IOException {
+        List<String> expected = new ArrayList<>();
+        for (LogEntry entry : mLogs) {
+            if (query.accept(entry.getTimeMs(), entry.getLevel(), entry.getTag())) {
+                expected.add(entry.toString());
+            }
+        }
+
+        List<String> actual = new ArrayList<>();
+        LogReader reader = query.open();
+        try {
+            LogEntry entry;
+            while ((entry = reader.read()) != null) {
+                // the logger's own logs
+                if (!FLConst.TAG.equals(entry.getTag())) {
+                    actual.add(entry.toString());
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        assertEquals(expected, actual);
+    }
+
+    private void awaitCompressed() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline && !isCompressed()) {
+            Thread.sleep(10);
+        }
+        assertTrue(isCompressed());
+        assertTrue(mFiles.get(2).exists());
+        for (File file : mFiles) {
+            assertTrue(file.getName(), LogOffsetIndex.of(file).exists());
+        }
+    }
+
+    private boolean isCompressed() {
+        for (File file : mFiles.subList(0, 2)) {
+            String name = file.getName();
+            File source = new File(mDir, name.substring(0, name.length() -
+                    LogFileCompressor.SUFFIX.length()));
+            if (!file.exists() || source.exists()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Cuts {@code length} bytes off the end of {@code file}.
+     */
+    private static void truncate(File file, long length) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            assertFalse(raf.length() <= length + 4);
+            raf.setLength(raf.length() - length);
+        } finally {
+            raf.close();
+        }
+    }
+}
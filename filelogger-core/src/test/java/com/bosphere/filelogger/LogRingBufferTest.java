@@ -0,0 +1,213 @@
+package com.bosphere.filelogger;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LogRingBufferTest {
+
+    @Test
+    public void roundsCapacityUpToPowerOfTwo() {
+        assertEquals(8, new LogRingBuffer(5).capacity());
+        assertEquals(8, new LogRingBuffer(8).capacity());
+        assertEquals(2, new LogRingBuffer(1).capacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroCapacity() {
+        new LogRingBuffer(0);
+    }
+
+    @Test
+    public void pollsInPublishOrder() {
+        LogRingBuffer buffer = new LogRingBuffer(4);
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 4; i++) {
+                publish(buffer, round * 4 + i);
+            }
+            assertEquals(4, buffer.size());
+            for (int i = 0; i < 4; i++) {
+                assertEquals(round * 4 + i, pollTime(buffer));
+            }
+            assertNull(buffer.poll());
+            assertEquals(0, buffer.size());
+        }
+    }
+
+    @Test
+    public void neverHandsOutPublishedSlot() {
+        LogRingBuffer buffer = new LogRingBuffer(1);
+        publish(buffer, 1);
+        publish(buffer, 2);
+        assertNull(buffer.claim());
+        assertEquals(1, pollTime(buffer));
+        assertEquals(2, pollTime(buffer));
+    }
+
+    @Test
+    public void claimFailsWhenFullUntilReleased() {
+        LogRingBuffer buffer = new LogRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            publish(buffer, i);
+        }
+        assertNull(buffer.claim());
+
+        // a polled slot is only reused once released
+        LogEvent event = buffer.poll();
+        assertNull(buffer.claim());
+        buffer.release(event);
+        assertNotNull(buffer.claim());
+    }
+
+    @Test
+    public void waitsForSlotsToBePublishedInOrder() {
+        LogRingBuffer buffer = new LogRingBuffer(4);
+        LogEvent first = buffer.claim();
+        first.timeMs = 1;
+        LogEvent second = buffer.claim();
+        second.timeMs = 2;
+        buffer.publish(second);
+        assertNull(buffer.poll());
+        assertNull(buffer.peek());
+
+        buffer.publish(first);
+        assertSame(first, buffer.peek());
+        assertEquals(1, pollTime(buffer));
+        assertEquals(2, pollTime(buffer));
+    }
+
+    @Test
+    public void evictsOldest() {
+        LogRingBuffer buffer = new LogRingBuffer(2);
+        assertFalse(buffer.evict());
+        publish(buffer, 1);
+        publish(buffer, 2);
+        assertNull(buffer.claim());
+
+        assertTrue(buffer.evict());
+        publish(buffer, 3);
+        assertEquals(2, pollTime(buffer));
+        assertEquals(3, pollTime(buffer));
+    }
+
+    @Test
+    public void evictsOnceOldestSlotIsPublished() throws Exception {
+        final LogRingBuffer buffer = new LogRingBuffer(2);
+        // claimed by a producer that has not published it yet
+        LogEvent unpublished = buffer.claim();
+        publish(buffer, 2);
+
+        final AtomicLong dropped = new AtomicLong();
+        final AtomicReference<LogEvent> claimed = new AtomicReference<>();
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                claimed.set(buffer.claimEvicting(dropped));
+            }
+        };
+        producer.start();
+        producer.join(200);
+        assertTrue(producer.isAlive());
+        assertEquals(0, dropped.get());
+
+        unpublished.timeMs = 1;
+        buffer.publish(unpublished);
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+        assertEquals(1, dropped.get());
+        assertNotNull(claimed.get());
+        claimed.get().timeMs = 3;
+        buffer.publish(claimed.get());
+        assertEquals(2, pollTime(buffer));
+        assertEquals(3, pollTime(buffer));
+    }
+
+    @Test
+    public void keepsOrderOfEachProducer() throws Exception {
+        final LogRingBuffer buffer = new LogRingBuffer(64);
+        final int producers = 4;
+        final int count = 20000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            threads[p] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < count; i++) {
+                        LogEvent event = buffer.claimWait();
+                        event.level = producer;
+                        event.timeMs = i;
+                        buffer.publish(event);
+                    }
+                }
+            };
+            threads[p].start();
+        }
+
+        long[] next = new long[producers];
+        for (int received = 0; received < producers * count; ) {
+            LogEvent event = buffer.poll();
+            if (event == null) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(next[event.level]++, event.timeMs);
+            buffer.release(event);
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    public void stopsWaitingOnceConsumerHasTerminated() throws Exception {
+        final LogRingBuffer buffer = new LogRingBuffer(1);
+        publish(buffer, 1);
+        publish(buffer, 2);
+        Thread consumer = new Thread();
+        buffer.setConsumer(consumer);
+
+        final AtomicReference<LogEvent> claimed = new AtomicReference<>();
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                claimed.set(buffer.claimWait());
+            }
+        };
+        producer.start();
+        // a consumer that has not started yet may still free a slot
+        producer.join(200);
+        assertTrue(producer.isAlive());
+
+        consumer.start();
+        consumer.join();
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+        assertNull(claimed.get());
+    }
+
+    private static void publish(LogRingBuffer buffer, long timeMs) {
+        LogEvent event = buffer.claim();
+        assertNotNull(event);
+        event.timeMs = timeMs;
+        buffer.publish(event);
+    }
+
+    private static long pollTime(LogRingBuffer buffer) {
+        LogEvent event = buffer.poll();
+        assertNotNull(event);
+        long timeMs = event.timeMs;
+        buffer.release(event);
+        return timeMs;
+    }
+}
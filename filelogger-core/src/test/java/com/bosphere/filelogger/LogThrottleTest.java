@@ -0,0 +1,183 @@
+package com.bosphere.filelogger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LogThrottleTest {
+
+    private final RecordingLogger mLogger = new RecordingLogger();
+
+    @Before
+    public void setUp() {
+        // summaries of held back logs are logged through the current config
+        FileLogger.init(new LogConfig.Builder()
+                .logger(mLogger)
+                .defaultTag("Default")
+                .logToFile(false)
+                .build());
+    }
+
+    @Test
+    public void limitsRatePerTagAndLevel() throws Exception {
+        LogThrottle throttle = new LogThrottle("Default", 0.5, 3, false);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(throttle.acquire(FLConst.Level.I, "Tag"));
+        }
+        assertFalse(throttle.acquire(FLConst.Level.I, "Tag"));
+        assertFalse(throttle.acquire(FLConst.Level.I, "Tag"));
+        assertTrue(throttle.acquire(FLConst.Level.W, "Tag"));
+        assertTrue(throttle.acquire(FLConst.Level.I, "Other"));
+
+        throttle.close();
+        assertEquals(Arrays.asList("I/Tag: 2 logs suppressed over rate limit"), mLogger.logs);
+    }
+
+    @Test
+    public void refillsOverTime() throws Exception {
+        LogThrottle throttle = new LogThrottle("Default", 20, 1, false);
+        assertTrue(throttle.acquire(FLConst.Level.I, "Tag"));
+        assertFalse(throttle.acquire(FLConst.Level.I, "Tag"));
+        Thread.sleep(100);
+        assertTrue(throttle.acquire(FLConst.Level.I, "Tag"));
+        throttle.close();
+    }
+
+    @Test
+    public void limitsNothingWithoutRate() {
+        LogThrottle throttle = new LogThrottle("Default", 0, 1, false);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(throttle.acquire(FLConst.Level.I, "Tag"));
+        }
+        throttle.close();
+        assertEquals(Collections.<String>emptyList(), mLogger.logs);
+    }
+
+    @Test
+    public void reportsSuppressedLogsOnceQuiet() throws Exception {
+        LogThrottle throttle = new LogThrottle("Default", 0.1, 1, false);
+        assertTrue(throttle.acquire(FLConst.Level.D, null));
+        for (int i = 0; i < 5; i++) {
+            assertFalse(throttle.acquire(FLConst.Level.D, ""));
+        }
+
+        awaitLogs(1);
+        assertEquals(Arrays.asList("D/Default: 5 logs suppressed over rate limit"), mLogger.logs);
+        throttle.close();
+    }
+
+    @Test
+    public void collapsesRepeatsComparedByValue() {
+        LogThrottle throttle = new LogThrottle("Default", 0, 1, true);
+        assertTrue(throttle.collapse(FLConst.Level.I, "Tag", "value: %d", args(1000)));
+        // equal, though not the same instance
+        assertFalse(throttle.collapse(FLConst.Level.I, "Tag", "value: %d", args(1000)));
+        assertFalse(throttle.collapse(FLConst.Level.I, "Tag", "value: %d", args(1000)));
+        assertTrue(throttle.collapse(FLConst.Level.I, "Tag", "value: %d", args(1001)));
+
+        assertTrue(throttle.collapse(FLConst.Level.W, "Tag", "value: %d", args(1001)));
+        assertTrue(throttle.collapse(FLConst.Level.W, "Other", "value: %d", args(1001)));
+        assertFalse(throttle.collapse(FLConst.Level.W, "Other", "value: %d", args(1001)));
+        assertTrue(throttle.collapse(FLConst.Level.W, "Other", "message", null));
+        assertFalse(throttle.collapse(FLConst.Level.W, "Other", "message", new Object[0]));
+
+        throttle.close();
+        assertEquals(Arrays.asList("I/Tag: last message repeated 2 times",
+                "W/Other: last message repeated 1 times", "W/Other: last message repeated 1 times"),
+                mLogger.logs);
+    }
+
+    @Test
+    public void comparesOtherArgumentsAsLogged() {
+        LogThrottle throttle = new LogThrottle("Default", 0, 1, true);
+        StringBuilder sb = new StringBuilder("state");
+        Object[] args = args(sb);
+        assertTrue(throttle.collapse(FLConst.Level.I, "Tag", "%s", args));
+        assertFalse(throttle.collapse(FLConst.Level.I, "Tag", "%s", args));
+        sb.append(" changed");
+        assertTrue(throttle.collapse(FLConst.Level.I, "Tag", "%s", args));
+
+        Object broken = new Object() {
+            @Override
+            public String toString() {
+                throw new IllegalStateException();
+            }
+        };
+        assertTrue(throttle.collapse(FLConst.Level.I, "Tag", "%s", args(broken)));
+        assertTrue(throttle.collapse(FLConst.Level.I, "Tag", "%s", args(broken)));
+        throttle.close();
+    }
+
+    @Test
+    public void reportsRepeatsOnceQuiet() throws Exception {
+        LogThrottle throttle = new LogThrottle("Default", 0, 1, true);
+        for (int i = 0; i < 4; i++) {
+            throttle.collapse(FLConst.Level.E, "Tag", "failed", null);
+        }
+
+        awaitLogs(1);
+        assertEquals(Arrays.asList("E/Tag: last message repeated 3 times"), mLogger.logs);
+        // counted from scratch, the last message stays the same
+        assertFalse(throttle.collapse(FLConst.Level.E, "Tag", "failed", null));
+        throttle.close();
+        assertEquals(Arrays.asList("E/Tag: last message repeated 3 times",
+                "E/Tag: last message repeated 1 times"), mLogger.logs);
+    }
+
+    @Test
+    public void collapsesRepeatsBeforeRateLimit() throws Exception {
+        FileLogger.init(new LogConfig.Builder()
+                .logger(mLogger)
+                .logToFile(false)
+                .rateLimit(0.1, 1)
+                .collapseRepeats(true)
+                .build());
+        FileLogger.setEnabled(true);
+        for (int i = 0; i < 3; i++) {
+            FileLogger.i("Format", "value: %d", 1);
+            FileLogger.e("Error", new IllegalStateException(), "failed");
+            FileLogger.w("Supplier", new MessageSupplier() {
+                @Override
+                public String get() {
+                    return "supplied";
+                }
+            });
+        }
+        // reports what has been held back
+        setUp();
+
+        List<String> logs = new ArrayList<>(mLogger.logs);
+        assertEquals(6, logs.size());
+        assertEquals("I/Format: value: 1", logs.get(0));
+        assertTrue(logs.get(1), logs.get(1).startsWith("E/Error: failed\n"));
+        assertEquals("W/Supplier: supplied", logs.get(2));
+        assertEquals(Arrays.asList("E/Error: last message repeated 2 times",
+                "I/Format: last message repeated 2 times",
+                "W/Supplier: last message repeated 2 times"), sorted(logs.subList(3, 6)));
+    }
+
+    private void awaitLogs(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mLogger.logs.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static List<String> sorted(List<String> logs) {
+        List<String> sorted = new ArrayList<>(logs);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    private static Object[] args(Object... args) {
+        return args;
+    }
+}
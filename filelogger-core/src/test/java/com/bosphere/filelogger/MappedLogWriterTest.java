@@ -0,0 +1,165 @@
+package com.bosphere.filelogger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A writer left open stands for a process that was killed: what it put into the mapped regions
+ * is in the file, but the end offset in the header is only as recent as the last flush.
+ */
+public class MappedLogWriterTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int REGION_SIZE = 64;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void writesHeaderAndCutsOffUnusedRegion() throws Exception {
+        File file = mFolder.newFile();
+        MappedLogWriter writer = new MappedLogWriter(file, REGION_SIZE);
+        writer.append("hello\n");
+        assertEquals(MappedLogWriter.HEADER_LENGTH + 6, writer.length());
+        writer.close();
+
+        assertEquals(header(MappedLogWriter.HEADER_LENGTH + 6) + "hello\n", read(file));
+    }
+
+    @Test
+    public void resumesFromRecordedEnd() throws Exception {
+        File file = mFolder.newFile();
+        MappedLogWriter writer = new MappedLogWriter(file, REGION_SIZE);
+        writer.append("one\n");
+        writer.flush();
+
+        MappedLogWriter reopened = new MappedLogWriter(file, REGION_SIZE);
+        assertEquals(MappedLogWriter.HEADER_LENGTH + 4, reopened.length());
+        reopened.append("two\n");
+        reopened.close();
+
+        assertEquals(header(MappedLogWriter.HEADER_LENGTH + 8) + "one\ntwo\n", read(file));
+    }
+
+    @Test
+    public void keepsBytesWrittenAfterLastFlush() throws Exception {
+        File file = mFolder.newFile();
+        MappedLogWriter writer = new MappedLogWriter(file, REGION_SIZE);
+        writer.append("flushed\n");
+        writer.flush();
+        writer.append("not flushed\n");
+
+        MappedLogWriter reopened = new MappedLogWriter(file, REGION_SIZE);
+        reopened.append("resumed\n");
+        reopened.close();
+
+        String logs = "flushed\nnot flushed\nresumed\n";
+        assertEquals(header(MappedLogWriter.HEADER_LENGTH + logs.length()) + logs, read(file));
+    }
+
+    @Test
+    public void keepsBytesWrittenAcrossRegionsAfterLastFlush() throws Exception {
+        File file = mFolder.newFile();
+        MappedLogWriter writer = new MappedLogWriter(file, REGION_SIZE);
+        writer.append("flushed\n");
+        writer.flush();
+        StringBuilder logs = new StringBuilder("flushed\n");
+        for (int i = 0; i < 40; i++) {
+            String line = "line " + i + " \u00e9\u20ac\ud83d\ude00\n";
+            writer.append(line);
+            logs.append(line);
+        }
+        // the end offset is also recorded when a region is mapped, move it back
+        writeEnd(file, MappedLogWriter.HEADER_LENGTH + 8);
+
+        MappedLogWriter reopened = new MappedLogWriter(file, REGION_SIZE);
+        reopened.append("resumed\n");
+        reopened.close();
+        logs.append("resumed\n");
+
+        String content = read(file);
+        assertEquals(logs.toString(), content.substring(MappedLogWriter.HEADER_LENGTH));
+        assertEquals(file.length(), Long.parseLong(content.substring(8, 24), 16));
+    }
+
+    @Test
+    public void resumesAfterTextWithNul() throws Exception {
+        File file = mFolder.newFile();
+        MappedLogWriter writer = new MappedLogWriter(file, REGION_SIZE);
+        writer.append("flushed \u0000\n");
+        writer.flush();
+        writer.append("not flushed \u0000");
+        writer.append('\u0000');
+        writer.append('\n');
+
+        MappedLogWriter reopened = new MappedLogWriter(file, REGION_SIZE);
+        reopened.append("resumed\n");
+        reopened.close();
+
+        String logs = "flushed ?\nnot flushed ??\nresumed\n";
+        assertEquals(header(MappedLogWriter.HEADER_LENGTH + logs.length()) + logs, read(file));
+    }
+
+    @Test
+    public void canOnlyAppendToOwnFiles() throws Exception {
+        File missing = new File(mFolder.getRoot(), "missing");
+        assertTrue(MappedLogWriter.canAppend(missing));
+        assertTrue(MappedLogWriter.canAppend(mFolder.newFile()));
+
+        File mapped = mFolder.newFile();
+        MappedLogWriter writer = new MappedLogWriter(mapped, REGION_SIZE);
+        writer.append("log\n");
+        writer.close();
+        assertTrue(MappedLogWriter.canAppend(mapped));
+
+        File text = mFolder.newFile();
+        Files.write(text.toPath(), "09-23 12:31:53.839 1-1 D/Tag: text log\n".getBytes(UTF_8));
+        assertFalse(MappedLogWriter.canAppend(text));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsCorruptedHeader() throws Exception {
+        File file = mFolder.newFile();
+        MappedLogWriter writer = new MappedLogWriter(file, REGION_SIZE);
+        writer.append("log\n");
+        writer.close();
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(10);
+            raf.write('x');
+        } finally {
+            raf.close();
+        }
+        new MappedLogWriter(file, REGION_SIZE);
+    }
+
+    private static String header(long end) {
+        String hex = String.format("%016x", end);
+        return "#FLMMAP " + hex + "       \n";
+    }
+
+    private static void writeEnd(File file, long end) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.write(header(end).getBytes(UTF_8));
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), UTF_8);
+    }
+}
@@ -0,0 +1,43 @@
+package com.bosphere.filelogger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps every log passed to it as "LEVEL/TAG: LOG".
+ */
+class RecordingLogger implements Loggable {
+
+    final List<String> logs = Collections.synchronizedList(new ArrayList<String>());
+
+    @Override
+    public void v(String tag, String log) {
+        logs.add("V/" + tag + ": " + log);
+    }
+
+    @Override
+    public void d(String tag, String log) {
+        logs.add("D/" + tag + ": " + log);
+    }
+
+    @Override
+    public void i(String tag, String log) {
+        logs.add("I/" + tag + ": " + log);
+    }
+
+    @Override
+    public void w(String tag, String log) {
+        logs.add("W/" + tag + ": " + log);
+    }
+
+    @Override
+    public void e(String tag, String log) {
+        logs.add("E/" + tag + ": " + log);
+    }
+
+    @Override
+    public void e(String tag, String log, Throwable tr) {
+        logs.add("E/" + tag + ": " + log);
+    }
+}
@@ -0,0 +1,93 @@
+package com.bosphere.filelogger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ThreadLocalLogQueueTest {
+
+    @Test
+    public void mergesThreadsByLogTime() throws Exception {
+        ThreadLocalLogQueue queue = new ThreadLocalLogQueue(16);
+        publishOnThread(queue, 1, 4, 6, 7);
+        publishOnThread(queue, 2, 3, 5, 8);
+        publish(queue, 0, 9);
+
+        for (int expected = 0; expected <= 9; expected++) {
+            assertEquals(expected, pollTime(queue));
+        }
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void picksUpLogsPublishedWhileDraining() throws Exception {
+        ThreadLocalLogQueue queue = new ThreadLocalLogQueue(16);
+        publishOnThread(queue, 1, 2);
+        assertEquals(1, pollTime(queue));
+
+        publish(queue, 3);
+        assertEquals(2, pollTime(queue));
+        assertEquals(3, pollTime(queue));
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void boundsEachThreadOnItsOwn() throws Exception {
+        final ThreadLocalLogQueue queue = new ThreadLocalLogQueue(4);
+        publish(queue, 1, 2, 3, 4);
+        assertNull(queue.claim());
+        assertEquals(4, queue.size());
+
+        // another thread still has room
+        publishOnThread(queue, 5);
+        assertEquals(5, queue.size());
+
+        // eviction only makes room in the buffer of the calling thread
+        assertTrue(queue.evict());
+        publish(queue, 6);
+        assertEquals(2, pollTime(queue));
+    }
+
+    @Test
+    public void drainsLogsOfTerminatedThreads() throws Exception {
+        ThreadLocalLogQueue queue = new ThreadLocalLogQueue(4);
+        for (int i = 0; i < 100; i++) {
+            publishOnThread(queue, i);
+            assertEquals(i, pollTime(queue));
+            assertNull(queue.poll());
+        }
+        assertEquals(0, queue.size());
+    }
+
+    private static void publishOnThread(final LogQueue queue, final long... times)
+            throws InterruptedException {
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                publish(queue, times);
+            }
+        };
+        thread.start();
+        thread.join();
+    }
+
+    private static void publish(LogQueue queue, long... times) {
+        for (long time : times) {
+            LogEvent event = queue.claim();
+            assertNotNull(event);
+            event.timeMs = time;
+            queue.publish(event);
+        }
+    }
+
+    private static long pollTime(LogQueue queue) {
+        LogEvent event = queue.poll();
+        assertNotNull(event);
+        long timeMs = event.timeMs;
+        queue.release(event);
+        return timeMs;
+    }
+}
@@ -0,0 +1,92 @@
+package com.bosphere.filelogger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+public class TimestampEncoderTest {
+
+    private static final long MINUTE_MS = 60 * 1000;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+
+    private TimeZone mDefaultZone;
+
+    @Before
+    public void setUp() {
+        mDefaultZone = TimeZone.getDefault();
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(mDefaultZone);
+    }
+
+    @Test
+    public void matchesSimpleDateFormatAroundMinutes() {
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        TimestampEncoder encoder = new TimestampEncoder();
+        long start = time(2026, Calendar.DECEMBER, 31, 23, 58);
+        for (long t = start; t < start + 3 * MINUTE_MS; t += 997) {
+            assertEncoded(encoder, t);
+            assertEncoded(encoder, t - t % MINUTE_MS);
+            assertEncoded(encoder, t - t % MINUTE_MS - 1);
+        }
+    }
+
+    @Test
+    public void goesBackInTime() {
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        TimestampEncoder encoder = new TimestampEncoder();
+        long start = time(2026, Calendar.MARCH, 1, 0, 0);
+        assertEncoded(encoder, start + HOUR_MS);
+        assertEncoded(encoder, start);
+        assertEncoded(encoder, start - 1);
+        assertEncoded(encoder, start + 59 * 1000 + 999);
+    }
+
+    @Test
+    public void followsDaylightSavingTime() {
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+        TimestampEncoder encoder = new TimestampEncoder();
+        // clocks go forward at 2026-03-29 01:00 UTC and back at 2026-10-25 01:00 UTC
+        long[] changes = {1774746000000L, 1792890000000L};
+        for (long change : changes) {
+            for (long t = change - 2 * MINUTE_MS; t < change + 2 * MINUTE_MS; t += 499) {
+                assertEncoded(encoder, t);
+            }
+        }
+    }
+
+    @Test
+    public void handlesOffsetsOfSeconds() {
+        // local mean time, +05:53:20 until 1941
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Kolkata"));
+        TimestampEncoder encoder = new TimestampEncoder();
+        long start = -2208988800000L; // 1900-01-01 00:00 UTC
+        for (long t = start; t < start + 3 * MINUTE_MS; t += 1001) {
+            assertEncoded(encoder, t);
+        }
+    }
+
+    private static void assertEncoded(TimestampEncoder encoder, long timeMs) {
+        SimpleDateFormat expected = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.ENGLISH);
+        StringBuilder sb = new StringBuilder();
+        encoder.append(timeMs, sb);
+        assertEquals(String.valueOf(timeMs), expected.format(new Date(timeMs)), sb.toString());
+    }
+
+    private static long time(int year, int month, int day, int hour, int minute) {
+        Calendar c = Calendar.getInstance();
+        c.clear();
+        c.set(year, month, day, hour, minute);
+        return c.getTimeInMillis();
+    }
+}
@@ -0,0 +1,47 @@
+package com.bosphere.filelogger;
+
+import android.os.Process;
+import android.util.Log;
+
+/**
+ * Backs {@link Platform} with the Android APIs, installed by {@link FLConfig.Builder}.
+ */
+class AndroidPlatform extends Platform {
+
+    static final AndroidPlatform INSTANCE = new AndroidPlatform();
+
+    @Override
+    int myPid() {
+        return Process.myPid();
+    }
+
+    @Override
+    int myTid() {
+        return Process.myTid();
+    }
+
+    @Override
+    void setLowestPriority() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_LOWEST);
+    }
+
+    @Override
+    String getStackTraceString(Throwable tr) {
+        return Log.getStackTraceString(tr);
+    }
+
+    @Override
+    void report(int level, String msg, Throwable tr) {
+        switch (level) {
+            case FLConst.Level.E:
+                Log.e(FLConst.TAG, msg, tr);
+                break;
+            case FLConst.Level.W:
+                Log.w(FLConst.TAG, msg, tr);
+                break;
+            default:
+                Log.i(FLConst.TAG, msg, tr);
+                break;
+        }
+    }
+}